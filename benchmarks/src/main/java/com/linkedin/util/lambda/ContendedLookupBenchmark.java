@@ -0,0 +1,12 @@
+package com.linkedin.util.lambda;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Same lookups as {@link LookupBenchmark} done concurrently by several threads. Names of a class loader are
+ * kept in concurrent maps, lookups by class name take the registry lock only when the looked up class loader
+ * differs from the previous one. When number of names is capped each hit also locks to record its use.
+ */
+@Threads(4)
+public class ContendedLookupBenchmark extends LookupBenchmark {
+}
@@ -0,0 +1,76 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Repeated lookup of a lambda name: the ClassValue backed path compared with the lookup by class name.
+ * Run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+  private Supplier<String> _named;
+  private Supplier<String> _unnamed;
+
+  @Setup
+  public void setup() {
+    _named = () -> "named";
+    //lambda classes of one host class differ only by their address on JDK 21 and later, which is dropped from
+    //the name they are looked up by, lambda of another host class is never found under the name of _named
+    _unnamed = Unnamed.supplier();
+    String className = _named.getClass().getName();
+    int slashIndex = className.lastIndexOf('/');
+    LambdaNames.add(_named.getClass().getClassLoader(), new LambdaName(className.substring(0, slashIndex), "() -> \"named\"",
+        new SourcePointer(LookupBenchmark.class.getName(), "setup", 42)));
+  }
+
+  private static class Unnamed {
+
+    static Supplier<String> supplier() {
+      return () -> "unnamed";
+    }
+  }
+
+  @Benchmark
+  public Optional<String> classValueHit() {
+    return LambdaNames.getLambdaName(_named);
+  }
+
+  @Benchmark
+  public String classValueHitOrNull() {
+    return LambdaNames.getLambdaNameOrNull(_named);
+  }
+
+  @Benchmark
+  public Optional<String> classValueMiss() {
+    return LambdaNames.getLambdaName(_unnamed);
+  }
+
+  @Benchmark
+  public Optional<String> classNameHit() {
+    return LambdaNames.getLambdaNameUncached(_named);
+  }
+
+  @Benchmark
+  public Optional<String> classNameMiss() {
+    return LambdaNames.getLambdaNameUncached(_unnamed);
+  }
+}
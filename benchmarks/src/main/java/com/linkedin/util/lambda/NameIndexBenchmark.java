@@ -0,0 +1,85 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup of a lambda name in a heap map keyed by strings compared with the memory mapped
+ * binary index. Run with {@code -prof gc} to compare allocation, see {@link NameIndexFootprint}
+ * for retained heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameIndexBenchmark {
+
+  @Param({"10000", "50000"})
+  int _size;
+
+  private Map<String, String> _map;
+  private MappedNameIndex _index;
+  private Path _file;
+  private int _next;
+
+  @Setup
+  public void setup() throws IOException {
+    _map = new ConcurrentHashMap<>(NameIndexFootprint.names(_size));
+    _file = Files.createTempFile("lambda-names", ".idx");
+    try (OutputStream os = Files.newOutputStream(_file)) {
+      MappedNameIndex.write(_map, os);
+    }
+    _index = MappedNameIndex.open(_file);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(_file);
+  }
+
+  private int next() {
+    _next = (_next + 7919) % _size;
+    return _next;
+  }
+
+  @Benchmark
+  public String map() {
+    int i = next();
+    return _map.get(PrecomputedNames.key(NameIndexFootprint.host(i), NameIndexFootprint.host(i),
+        NameIndexFootprint.implName(i), NameIndexFootprint.IMPL_DESC));
+  }
+
+  @Benchmark
+  public int mappedFind() {
+    int i = next();
+    return _index.find(NameIndexFootprint.host(i), NameIndexFootprint.host(i), NameIndexFootprint.implName(i),
+        NameIndexFootprint.IMPL_DESC);
+  }
+
+  @Benchmark
+  public String mappedGet() {
+    int i = next();
+    return _index.getName(_index.find(NameIndexFootprint.host(i), NameIndexFootprint.host(i),
+        NameIndexFootprint.implName(i), NameIndexFootprint.IMPL_DESC));
+  }
+}
@@ -0,0 +1,73 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap retained by lambda names kept in a {@code ConcurrentHashMap} compared with the memory mapped
+ * binary index, for a synthetic set of lambdas:
+ * <pre>
+ *   java -cp target/benchmarks.jar com.linkedin.util.lambda.NameIndexFootprint 50000
+ * </pre>
+ */
+public class NameIndexFootprint {
+
+  static final String IMPL_DESC = "(Ljava/lang/String;)Ljava/util/concurrent/CompletableFuture;";
+
+  private NameIndexFootprint() {
+  }
+
+  static String host(int i) {
+    return "com/example/service/resources/Resource" + (i / 20);
+  }
+
+  static String implName(int i) {
+    return "lambda$handle" + (i % 5) + "$" + (i % 20);
+  }
+
+  static Map<String, String> names(int size) {
+    Map<String, String> names = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      names.put(PrecomputedNames.key(host(i), host(i), implName(i), IMPL_DESC),
+          "s -> Resource" + (i / 20) + ".handle(_) handle" + (i % 5) + "(Resource" + (i / 20) + ":" + (i % 300) + ")");
+    }
+    return names;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    Path file = Files.createTempFile("lambda-names", ".idx");
+    try {
+      try (OutputStream os = Files.newOutputStream(file)) {
+        MappedNameIndex.write(names(size), os);
+      }
+      long before = usedHeap();
+      Map<String, String> map = new ConcurrentHashMap<>(names(size));
+      long mapHeap = usedHeap() - before;
+
+      before = usedHeap();
+      MappedNameIndex index = MappedNameIndex.open(file);
+      long indexHeap = usedHeap() - before;
+
+      System.out.println("lambdas:                  " + map.size());
+      System.out.println("ConcurrentHashMap heap:   " + mapHeap / 1024 + " KB");
+      System.out.println("mapped index heap:        " + indexHeap / 1024 + " KB");
+      System.out.println("mapped index file:        " + Files.size(file) / 1024 + " KB (" + index.size() + " entries)");
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,110 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans done by {@link MethodRefOwnerFinder} and {@link MethodInvOwnerFinder} over methods of
+ * {@link OwnerFinderTarget}. Huge methods are made of copies of the original method's code placed
+ * before it, with returns removed and line numbers shifted, so the finders have to scan all of them.
+ * Run with {@code -prof gc} to see allocation per scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerFinderBenchmark {
+
+  @Param({"0", "1000"})
+  int _copies;
+
+  private MethodNode _methodRef;
+  private int _methodRefLine;
+  private MethodNode _methodInv;
+
+  @Setup
+  public void setup() throws IOException {
+    ClassNode classNode = new ClassNode(Opcodes.ASM9);
+    new ClassReader(OwnerFinderTarget.class.getName()).accept(classNode, 0);
+    for (MethodNode method : classNode.methods) {
+      if (method.name.equals("methodRef")) {
+        _methodRefLine = firstLine(method);
+        _methodRef = grow(method, _copies);
+      } else if (method.name.startsWith("lambda$methodInv$")) {
+        _methodInv = grow(method, _copies);
+      }
+    }
+  }
+
+  @Benchmark
+  public Optional<String> methodRef() {
+    return MethodRefOwnerFinder.findOwner(_methodRef, _methodRefLine);
+  }
+
+  @Benchmark
+  public Optional<String> methodInv() {
+    return MethodInvOwnerFinder.findOwner(_methodInv);
+  }
+
+  private static int firstLine(MethodNode method) {
+    for (AbstractInsnNode insn : method.instructions) {
+      if (insn instanceof LineNumberNode) {
+        return ((LineNumberNode) insn).line;
+      }
+    }
+    throw new IllegalStateException("Compiled without line numbers");
+  }
+
+  private static MethodNode grow(MethodNode method, int copies) {
+    InsnList instructions = new InsnList();
+    for (int i = 1; i <= copies; i++) {
+      Map<LabelNode, LabelNode> labels = new HashMap<>();
+      for (AbstractInsnNode insn : method.instructions) {
+        if (insn instanceof LabelNode) {
+          labels.put((LabelNode) insn, new LabelNode());
+        }
+      }
+      for (AbstractInsnNode insn : method.instructions) {
+        int opcode = insn.getOpcode();
+        if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) {
+          continue;
+        }
+        AbstractInsnNode copy = insn.clone(labels);
+        if (copy instanceof LineNumberNode) {
+          ((LineNumberNode) copy).line += i * 10000;
+        }
+        instructions.add(copy);
+      }
+    }
+    MethodNode grown = new MethodNode(Opcodes.ASM9, method.access, method.name, method.desc, method.signature, null);
+    grown.instructions = instructions;
+    grown.instructions.add(method.instructions);
+    grown.localVariables = method.localVariables;
+    return grown;
+  }
+}
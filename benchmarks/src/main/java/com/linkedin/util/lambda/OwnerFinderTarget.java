@@ -0,0 +1,18 @@
+package com.linkedin.util.lambda;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Methods scanned by {@link OwnerFinderBenchmark}.
+ */
+class OwnerFinderTarget {
+
+  Supplier<String> methodRef(String receiver) {
+    return receiver::trim;
+  }
+
+  Function<String, String> methodInv(String receiver) {
+    return s -> receiver.concat(s);
+  }
+}
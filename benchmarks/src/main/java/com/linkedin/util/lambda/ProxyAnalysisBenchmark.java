@@ -0,0 +1,99 @@
+package com.linkedin.util.lambda;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Analysis of a lambda proxy class by {@link NameGenClassVisitor}. Proxy classes are generated the way
+ * JDK 8 spins them for lambdas of {@link ProxyHost}. Without a cached owner class every analysis parses
+ * {@link ProxyHost} again. Run with {@code -prof gc} to see allocation per analysis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyAnalysisBenchmark {
+
+  private static final String HOST = Type.getInternalName(ProxyHost.class);
+  private static final String STRING = Type.getInternalName(String.class);
+
+  @Param({"methodRef", "block"})
+  String _kind;
+
+  @Param({"true", "false"})
+  boolean _ownerCached;
+
+  private byte[] _proxy;
+  private ClassLoader _loader;
+
+  @Setup
+  public void setup() {
+    _loader = ProxyHost.class.getClassLoader();
+    if (_kind.equals("methodRef")) {
+      _proxy = proxy(Opcodes.INVOKEVIRTUAL, STRING, "trim", "()Ljava/lang/String;");
+    } else {
+      Method impl = Arrays.stream(ProxyHost.class.getDeclaredMethods())
+          .filter(m -> m.getName().startsWith("lambda$block$"))
+          .findFirst()
+          .orElseThrow(IllegalStateException::new);
+      _proxy = proxy(Opcodes.INVOKESTATIC, HOST, impl.getName(), Type.getMethodDescriptor(impl));
+    }
+  }
+
+  @Benchmark
+  public LambdaName analyze() {
+    if (!_ownerCached) {
+      OwnerClassCache.getInstance().clear();
+    }
+    return NameGenClassVisitor.analyze(_proxy, Optional.empty(), _loader);
+  }
+
+  /**
+   * Generates {@code Function<String, String>} proxy class that calls given implementation method.
+   */
+  private static byte[] proxy(int opcode, String owner, String name, String desc) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    String proxyName = HOST + "$$Lambda$1";
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC, proxyName, null,
+        "java/lang/Object", new String[] {"java/util/function/Function"});
+    MethodVisitor init = cw.visitMethod(Opcodes.ACC_PRIVATE, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+    MethodVisitor apply = cw.visitMethod(Opcodes.ACC_PUBLIC, "apply", "(Ljava/lang/Object;)Ljava/lang/Object;",
+        null, null);
+    apply.visitAnnotation("Ljava/lang/invoke/LambdaForm$Hidden;", true).visitEnd();
+    apply.visitCode();
+    apply.visitVarInsn(Opcodes.ALOAD, 1);
+    apply.visitTypeInsn(Opcodes.CHECKCAST, STRING);
+    apply.visitMethodInsn(opcode, owner, name, desc, false);
+    apply.visitInsn(Opcodes.ARETURN);
+    apply.visitMaxs(0, 0);
+    apply.visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+}
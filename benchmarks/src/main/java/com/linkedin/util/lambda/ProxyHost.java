@@ -0,0 +1,17 @@
+package com.linkedin.util.lambda;
+
+import java.util.function.Function;
+
+/**
+ * Owner of the lambdas whose proxy classes are analyzed by {@link ProxyAnalysisBenchmark}.
+ */
+class ProxyHost {
+
+  static Function<String, String> methodRef() {
+    return String::trim;
+  }
+
+  static Function<String, String> block() {
+    return s -> s.trim().toUpperCase();
+  }
+}
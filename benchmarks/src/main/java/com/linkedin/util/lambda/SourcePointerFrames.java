@@ -0,0 +1,21 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Frames that source pointer capture skips, like frames of the agent and of the JDK between a lambda call site
+ * and the capture, since name of this class starts with name of {@link SourcePointer}.
+ */
+class SourcePointerFrames {
+
+  private SourcePointerFrames() {
+  }
+
+  static Optional<SourcePointer> atDepth(int depth, Supplier<Optional<SourcePointer>> capture) {
+    if (depth == 0) {
+      return capture.get();
+    }
+    return atDepth(depth - 1, capture);
+  }
+}
@@ -0,0 +1,44 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of capturing source pointer of a lambda below a number of skipped frames, comparing
+ * stack trace based capture used on JDK 8 with the one used on the running JDK.
+ * Run on JDK 9+ to compare with the StackWalker based capture. Skipped frames are the ones of
+ * {@link SourcePointerFrames}, whose name starts with name of an agent class, the capture stops at the frame
+ * of the benchmark method. Class name of the benchmark must not start with name of any agent class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackCaptureBenchmark {
+
+  @Param({"10", "50", "150"})
+  int _depth;
+
+  @Benchmark
+  public Optional<SourcePointer> stackTrace() {
+    return SourcePointerFrames.atDepth(_depth, SourcePointer::fromStackTrace);
+  }
+
+  @Benchmark
+  public Optional<SourcePointer> current() {
+    return SourcePointerFrames.atDepth(_depth, SourcePointer::get);
+  }
+}
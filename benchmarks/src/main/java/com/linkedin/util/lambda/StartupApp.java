@@ -0,0 +1,82 @@
+package com.linkedin.util.lambda;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Synthetic application started by {@link StartupHarness} in a fresh JVM. It loads the agent unless
+ * mode is {@code none}, creates all lambdas of the generated classes, names them as its first request and
+ * prints measurements, including bytes allocated per analyzed lambda, as a JSON object. Then it waits for
+ * a line on standard input, so that the harness can read JVM counters, and exits.
+ */
+public class StartupApp {
+
+  private StartupApp() {
+  }
+
+  /**
+   * @param args agent options or {@code none}, number of generated classes
+   */
+  public static void main(String[] args) throws Exception {
+    String mode = args[0];
+    int classes = Integer.parseInt(args[1]);
+    if (!mode.equals(StartupHarness.NO_AGENT)) {
+      LambdaNames.initialize(mode.isEmpty() ? null : mode);
+    }
+    long agentMillis = uptime();
+
+    List<Object> lambdas = new ArrayList<>();
+    for (int i = 0; i < classes; i++) {
+      Class<?> type = Class.forName(StartupHarness.className(i));
+      Object app = type.newInstance();
+      for (Object lambda : (List<?>) type.getMethod("lambdas", String.class).invoke(app, "local" + i)) {
+        lambdas.add(lambda);
+      }
+    }
+    long readyMillis = uptime();
+
+    int named = 0;
+    for (Object lambda : lambdas) {
+      if (LambdaNames.getLambdaName(lambda).isPresent()) {
+        named++;
+      }
+    }
+    long firstRequestMillis = uptime();
+
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Map<String, Long> allocated = AgentMetrics.getInstance().getAnalysisAllocatedBytes();
+    Runtime runtime = Runtime.getRuntime();
+    String name = ManagementFactory.getRuntimeMXBean().getName();
+    System.out.println("{\"pid\": " + name.substring(0, name.indexOf('@'))
+        + ", \"agentMillis\": " + agentMillis
+        + ", \"readyMillis\": " + readyMillis
+        + ", \"firstRequestMillis\": " + firstRequestMillis
+        + ", \"lambdas\": " + lambdas.size()
+        + ", \"named\": " + named
+        + ", \"loadedClasses\": " + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()
+        + ", \"retainedHeapBytes\": " + (runtime.totalMemory() - runtime.freeMemory())
+        + ", \"metaspaceBytes\": " + metaspace()
+        + ", \"analysisAllocatedBytesMean\": " + allocated.get("mean")
+        + ", \"analysisAllocatedBytesP99\": " + allocated.get("p99") + "}");
+    System.out.flush();
+    System.in.read();
+  }
+
+  private static long uptime() {
+    return ManagementFactory.getRuntimeMXBean().getUptime();
+  }
+
+  private static long metaspace() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getName().equals("Metaspace")) {
+        return pool.getUsage().getUsed();
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,175 @@
+package com.linkedin.util.lambda;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Startup cost and footprint of the agent. Generates a synthetic application with given number of lambdas
+ * and method references, in the shapes covered by the tests, and runs it in a fresh JVM without the agent
+ * and with the dynamically attached agent in each given mode:
+ * <pre>
+ *   java -cp target/benchmarks.jar com.linkedin.util.lambda.StartupHarness 5000 3 startup.json none mode=eager mode=lazy
+ * </pre>
+ * Mode is either {@code none} or agent options. Must run on a JDK, sources are compiled with the system compiler
+ * and class load time is read with {@code jcmd}. Results are written as JSON.
+ */
+public class StartupHarness {
+
+  static final String NO_AGENT = "none";
+  static final int LAMBDAS_PER_CLASS = 50;
+  private static final String PACKAGE = "synthetic";
+
+  private StartupHarness() {
+  }
+
+  static String className(int i) {
+    return PACKAGE + ".App" + i;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int lambdas = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    Path output = Paths.get(args.length > 2 ? args[2] : "startup.json");
+    List<String> modes = args.length > 3 ? Arrays.asList(args).subList(3, args.length)
+        : Arrays.asList(NO_AGENT, "mode=eager", "mode=lazy", "mode=async");
+
+    int classes = Math.max(1, lambdas / LAMBDAS_PER_CLASS);
+    Path dir = Files.createTempDirectory("lambda-names-startup");
+    compile(generate(dir, classes), dir);
+
+    List<String> results = new ArrayList<>();
+    for (String mode : modes) {
+      for (int run = 0; run < runs; run++) {
+        String result = run(dir, mode, classes);
+        System.out.println(mode + " #" + run + ": " + result);
+        results.add("    {\"mode\": \"" + mode + "\", \"run\": " + run + ", " + result.substring(1));
+      }
+    }
+    try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+      writer.write("{\n");
+      writer.write("  \"java\": \"" + System.getProperty("java.version") + "\",\n");
+      writer.write("  \"lambdas\": " + classes * LAMBDAS_PER_CLASS + ",\n");
+      writer.write("  \"results\": [\n");
+      writer.write(results.stream().collect(Collectors.joining(",\n")));
+      writer.write("\n  ]\n}\n");
+    }
+    System.out.println("Results written to " + output);
+  }
+
+  /**
+   * Each generated class contains lambdas and method references of five shapes: static method reference,
+   * method references on a local variable, on a field and on the lambda parameter, and capturing block.
+   */
+  private static List<File> generate(Path dir, int classes) throws IOException {
+    Path packageDir = Files.createDirectories(dir.resolve(PACKAGE));
+    List<File> sources = new ArrayList<>();
+    for (int i = 0; i < classes; i++) {
+      Path source = packageDir.resolve("App" + i + ".java");
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(source, StandardCharsets.UTF_8))) {
+        out.println("package " + PACKAGE + ";");
+        out.println("import java.util.*;");
+        out.println("import java.util.function.*;");
+        out.println("public class App" + i + " {");
+        out.println("  private final String _field = \"field" + i + "\";");
+        out.println("  public List<Object> lambdas(String local) {");
+        out.println("    List<Object> lambdas = new ArrayList<>();");
+        for (int j = 0; j < LAMBDAS_PER_CLASS / 5; j++) {
+          out.println("    lambdas.add((Function<String, Integer>) Integer::parseInt);");
+          out.println("    lambdas.add((Supplier<String>) local::trim);");
+          out.println("    lambdas.add((Function<String, String>) _field::concat);");
+          out.println("    lambdas.add((Function<String, String>) String::toUpperCase);");
+          out.println("    lambdas.add((Function<String, String>) s -> s + local + " + j + ");");
+        }
+        out.println("    return lambdas;");
+        out.println("  }");
+        out.println("}");
+      }
+      sources.add(source.toFile());
+    }
+    return sources;
+  }
+
+  private static void compile(List<File> sources, Path dir) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("System Java compiler not found, run the harness on a JDK");
+    }
+    List<String> args = new ArrayList<>(Arrays.asList("-d", dir.toString(), "-g", "-source", "8", "-target", "8",
+        "-nowarn"));
+    sources.forEach(source -> args.add(source.getPath()));
+    if (compiler.run(null, null, null, args.toArray(new String[0])) != 0) {
+      throw new IllegalStateException("Failed compiling synthetic application in " + dir);
+    }
+  }
+
+  private static String run(Path dir, String mode, int classes) throws IOException, InterruptedException {
+    String javaHome = System.getProperty("java.home");
+    ProcessBuilder builder = new ProcessBuilder(Paths.get(javaHome, "bin", "java").toString(),
+        "-Djdk.attach.allowAttachSelf=true",
+        "-cp", System.getProperty("java.class.path") + File.pathSeparator + dir,
+        StartupApp.class.getName(), mode, Integer.toString(classes));
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    Process process = builder.start();
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+        StandardCharsets.UTF_8)); OutputStream out = process.getOutputStream()) {
+      String result = in.lines().filter(line -> line.startsWith("{\"pid\"")).findFirst()
+          .orElseThrow(() -> new IllegalStateException("Synthetic application did not report results"));
+      String pid = result.substring(result.indexOf(':') + 1, result.indexOf(',')).trim();
+      result = result.substring(0, result.length() - 1) + ", \"classLoadMillis\": " + classLoadMillis(javaHome, pid)
+          + "}";
+      out.write('\n');
+      out.flush();
+      process.waitFor();
+      return result;
+    } finally {
+      process.destroy();
+    }
+  }
+
+  /**
+   * Reads total class load time of the JVM from its performance counters.
+   * @return time in milliseconds or -1 if it can't be read
+   */
+  private static long classLoadMillis(String javaHome, String pid) throws IOException, InterruptedException {
+    Path jcmd = Paths.get(javaHome, "bin", "jcmd");
+    if (!Files.exists(jcmd)) {
+      //JDK 8 java.home points to the JRE
+      jcmd = Paths.get(javaHome, "..", "bin", "jcmd");
+    }
+    if (!Files.exists(jcmd)) {
+      return -1;
+    }
+    Process process = new ProcessBuilder(jcmd.toString(), pid, "PerfCounter.print").start();
+    long ticks = -1;
+    long frequency = -1;
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+        StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.startsWith("sun.cls.time=")) {
+          ticks = Long.parseLong(line.substring("sun.cls.time=".length()));
+        } else if (line.startsWith("sun.os.hrt.frequency=")) {
+          frequency = Long.parseLong(line.substring("sun.os.hrt.frequency=".length()));
+        }
+      }
+    }
+    process.waitFor();
+    return ticks >= 0 && frequency > 0 ? ticks * 1000 / frequency : -1;
+  }
+}
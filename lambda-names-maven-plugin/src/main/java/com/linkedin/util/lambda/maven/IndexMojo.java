@@ -0,0 +1,163 @@
+package com.linkedin.util.lambda.maven;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import com.linkedin.util.lambda.LambdaNameIndexer;
+
+/**
+ * Names lambdas of compiled classes and, optionally, of runtime dependencies and writes them
+ * to {@code META-INF/lambda-names} in the output directory, where they are found by the agent at runtime.
+ * Each dependency jar is scanned by a separate task.
+ */
+@Mojo(name = "index", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true,
+    requiresDependencyResolution = ResolutionScope.RUNTIME)
+public class IndexMojo extends AbstractMojo {
+
+  private static final String INDEX = "META-INF/lambda-names";
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  @Parameter(property = "lambdaNames.classesDirectory", defaultValue = "${project.build.outputDirectory}")
+  private File classesDirectory;
+
+  /**
+   * If set, index is also written to this file in the binary format that the agent memory maps.
+   */
+  @Parameter(property = "lambdaNames.binaryIndexFile")
+  private File binaryIndexFile;
+
+  @Parameter(property = "lambdaNames.includeDependencies", defaultValue = "true")
+  private boolean includeDependencies;
+
+  @Parameter(property = "lambdaNames.threads", defaultValue = "0")
+  private int threads;
+
+  @Parameter(property = "lambdaNames.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip || !classesDirectory.isDirectory()) {
+      return;
+    }
+    LambdaNameIndexer indexer = new LambdaNameIndexer();
+    int threads = this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      tasks.add(executor.submit(() -> {
+        indexDirectory(indexer, classesDirectory.toPath());
+        return null;
+      }));
+      if (includeDependencies) {
+        for (Artifact artifact : project.getArtifacts()) {
+          File file = artifact.getFile();
+          if (file != null && file.isFile() && file.getName().endsWith(".jar")) {
+            tasks.add(executor.submit(() -> {
+              indexJar(indexer, file);
+              return null;
+            }));
+          }
+        }
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while indexing lambdas", e);
+    } catch (ExecutionException e) {
+      throw new MojoExecutionException("Failed indexing lambdas", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    File index = new File(classesDirectory, INDEX);
+    index.getParentFile().mkdirs();
+    try (OutputStream os = Files.newOutputStream(index.toPath())) {
+      indexer.write(os);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed writing " + index, e);
+    }
+    if (binaryIndexFile != null) {
+      binaryIndexFile.getAbsoluteFile().getParentFile().mkdirs();
+      try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(binaryIndexFile.toPath()))) {
+        indexer.writeBinary(os);
+      } catch (IOException e) {
+        throw new MojoExecutionException("Failed writing " + binaryIndexFile, e);
+      }
+    }
+    getLog().info("Indexed " + indexer.size() + " lambdas in " + index);
+  }
+
+  private void indexDirectory(LambdaNameIndexer indexer, Path directory) throws IOException {
+    List<Path> classFiles;
+    try (Stream<Path> files = Files.walk(directory)) {
+      classFiles = files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList());
+    }
+    for (Path classFile : classFiles) {
+      add(indexer, Files.readAllBytes(classFile), classFile.toString());
+    }
+  }
+
+  private void indexJar(LambdaNameIndexer indexer, File file) throws IOException {
+    try (JarFile jar = new JarFile(file)) {
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        //classes of other java versions of multi release jars are skipped
+        if (entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/")) {
+          try (InputStream is = jar.getInputStream(entry)) {
+            add(indexer, readFully(is), file + "!" + entry.getName());
+          }
+        }
+      }
+    }
+  }
+
+  private void add(LambdaNameIndexer indexer, byte[] byteCode, String source) {
+    try {
+      indexer.addClass(byteCode);
+    } catch (RuntimeException e) {
+      //e.g. class file version not supported by ASM, its lambdas are named at runtime
+      getLog().debug("Skipping " + source + ": " + e);
+    }
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = is.read(buffer)) != -1) {
+      os.write(buffer, 0, n);
+    }
+    return os.toByteArray();
+  }
+}
@@ -0,0 +1,283 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters and histograms of the agent's own overhead, exposed as {@link LambdaNamesMXBean}.
+ * Recording uses striped counters only, it does not add contention to the class loading path.
+ * When the MBean is not registered phases are neither timed nor recorded, unless JFR events are.
+ */
+class AgentMetrics implements LambdaNamesMXBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AgentMetrics.class);
+
+  static final String JMX = "jmx";
+  static final String OBJECT_NAME = "com.linkedin.util.lambda:type=LambdaNames";
+
+  /**
+   * Returned by {@link #phaseStart()} when the phase is not timed.
+   */
+  static final long NOT_TIMED = Long.MIN_VALUE;
+
+  enum Phase {
+    STACK_CAPTURE,
+    ANALYSIS,
+    OWNER_PARSE,
+    FINDER_SCAN
+  }
+
+  private static final AgentMetrics _instance = new AgentMetrics();
+
+  private final LongAdder _classesSeen = new LongAdder();
+  private final LongAdder _lambdaClasses = new LongAdder();
+  private final LongAdder _filtered = new LongAdder();
+  private final LongAdder _namesProduced = new LongAdder();
+  private final LongAdder _unknownOperations = new LongAdder();
+  private final LongAdder _ownerReadFailures = new LongAdder();
+  private final LongAdder _analysisFailures = new LongAdder();
+  private final Histogram[] _phases = new Histogram[Phase.values().length];
+  private final Histogram _allocatedBytes = new Histogram();
+  private final AllocationCounter _allocations = allocationCounter();
+  private volatile boolean _enabled = true;
+
+  AgentMetrics() {
+    for (int i = 0; i < _phases.length; i++) {
+      _phases[i] = new Histogram();
+    }
+  }
+
+  static AgentMetrics getInstance() {
+    return _instance;
+  }
+
+  /**
+   * Registers the MBean unless {@code jmx=false} is passed to the agent.
+   */
+  static void configure(AgentOptions options) {
+    _instance.setEnabled(options.getBoolean(JMX, true));
+    if (options.getBoolean(JMX, true)) {
+      try {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+          server.registerMBean(_instance, name);
+        }
+      } catch (JMException e) {
+        LOGGER.warn("Failed registering " + OBJECT_NAME, e);
+      }
+    }
+  }
+
+  private static AllocationCounter allocationCounter() {
+    try {
+      return AllocationCounter.create();
+    } catch (LinkageError e) {
+      //not a HotSpot based JVM, counter fails to load
+      return null;
+    }
+  }
+
+  /**
+   * @param enabled if {@code false} phases and allocations are not recorded
+   */
+  void setEnabled(boolean enabled) {
+    _enabled = enabled;
+  }
+
+  void classSeen() {
+    _classesSeen.increment();
+  }
+
+  void lambdaClass() {
+    _lambdaClasses.increment();
+  }
+
+  void filtered() {
+    _filtered.increment();
+  }
+
+  void analyzed(LambdaName lambdaName) {
+    if (lambdaName.getName().isPresent()) {
+      _namesProduced.increment();
+    }
+    if (lambdaName.getInferredOperation() == null) {
+      _unknownOperations.increment();
+    }
+  }
+
+  void ownerReadFailure() {
+    _ownerReadFailures.increment();
+  }
+
+  void analysisFailure() {
+    _analysisFailures.increment();
+  }
+
+  /**
+   * @return value passed to {@link #record(Phase, long)}, {@link System#nanoTime()} or {@link #NOT_TIMED} if
+   * neither metrics nor JFR events are recorded
+   */
+  long phaseStart() {
+    return _enabled || AnalysisEvents.isEnabled() ? System.nanoTime() : NOT_TIMED;
+  }
+
+  /**
+   * @param start value of {@link #phaseStart()} when the phase started
+   */
+  void record(Phase phase, long start) {
+    if (start == NOT_TIMED) {
+      return;
+    }
+    long nanos = System.nanoTime() - start;
+    if (_enabled) {
+      _phases[phase.ordinal()].record(nanos);
+    }
+    AnalysisEvents.phase(phase, nanos);
+  }
+
+  /**
+   * @return bytes allocated so far by the current thread or -1 if it is not measured
+   */
+  long allocatedBytes() {
+    return _enabled && _allocations != null ? _allocations.allocatedBytes() : -1;
+  }
+
+  /**
+   * @param start value of {@link #allocatedBytes()} when the analysis started
+   */
+  void recordAllocation(long start) {
+    if (start >= 0 && _enabled) {
+      _allocatedBytes.record(allocatedBytes() - start);
+    }
+  }
+
+  Histogram getPhase(Phase phase) {
+    return _phases[phase.ordinal()];
+  }
+
+  @Override
+  public long getClassesSeen() {
+    return _classesSeen.sum();
+  }
+
+  @Override
+  public long getLambdaClasses() {
+    return _lambdaClasses.sum();
+  }
+
+  @Override
+  public long getFilteredLambdas() {
+    return _filtered.sum();
+  }
+
+  @Override
+  public long getNamesProduced() {
+    return _namesProduced.sum();
+  }
+
+  @Override
+  public long getUnknownOperations() {
+    return _unknownOperations.sum();
+  }
+
+  @Override
+  public long getOwnerReadFailures() {
+    return _ownerReadFailures.sum();
+  }
+
+  @Override
+  public long getAnalysisFailures() {
+    return _analysisFailures.sum();
+  }
+
+  @Override
+  public int getRegistrySize() {
+    return LambdaNames.size();
+  }
+
+  @Override
+  public long getOwnerCacheHits() {
+    return OwnerClassCache.getInstance().getHits();
+  }
+
+  @Override
+  public long getOwnerCacheMisses() {
+    return OwnerClassCache.getInstance().getMisses();
+  }
+
+  @Override
+  public Map<String, Long> getStackCaptureNanos() {
+    return getPhase(Phase.STACK_CAPTURE).toMap();
+  }
+
+  @Override
+  public Map<String, Long> getAnalysisNanos() {
+    return getPhase(Phase.ANALYSIS).toMap();
+  }
+
+  @Override
+  public Map<String, Long> getOwnerParseNanos() {
+    return getPhase(Phase.OWNER_PARSE).toMap();
+  }
+
+  @Override
+  public Map<String, Long> getFinderScanNanos() {
+    return getPhase(Phase.FINDER_SCAN).toMap();
+  }
+
+  @Override
+  public Map<String, Long> getAnalysisAllocatedBytes() {
+    return _allocatedBytes.toMap();
+  }
+
+  @Override
+  public void exportNames(String file) throws IOException {
+    try (OutputStream os = Files.newOutputStream(Paths.get(file))) {
+      LambdaNames.exportNames(os);
+    }
+  }
+
+  /**
+   * Only class that refers to {@code com.sun.management}, so that {@link AgentMetrics} loads on JVMs without it.
+   */
+  private static class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean _threads;
+
+    private AllocationCounter(com.sun.management.ThreadMXBean threads) {
+      _threads = threads;
+    }
+
+    /**
+     * @return counter or {@code null} if allocations of threads are not measured
+     */
+    static AllocationCounter create() {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+          return new AllocationCounter(allocations);
+        }
+      }
+      return null;
+    }
+
+    long allocatedBytes() {
+      return _threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+}
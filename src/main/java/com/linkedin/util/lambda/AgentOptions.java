@@ -0,0 +1,77 @@
+package com.linkedin.util.lambda;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Options passed to the agent as a comma separated list of key=value pairs,
+ * e.g. {@code trace=/tmp/lambdas.txt,traceMaxFileSize=1048576}.
+ */
+class AgentOptions {
+
+  private final Map<String, String> _options;
+
+  private AgentOptions(Map<String, String> options) {
+    _options = options;
+  }
+
+  static AgentOptions empty() {
+    return new AgentOptions(Collections.emptyMap());
+  }
+
+  static AgentOptions parse(String agentArgs) {
+    if (agentArgs == null || agentArgs.trim().isEmpty()) {
+      return empty();
+    }
+    Map<String, String> options = new HashMap<>();
+    for (String option : agentArgs.split(",")) {
+      String trimmed = option.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      int eqIndex = trimmed.indexOf('=');
+      if (eqIndex > 0) {
+        options.put(trimmed.substring(0, eqIndex).trim(), trimmed.substring(eqIndex + 1).trim());
+      } else {
+        options.put(trimmed, "true");
+      }
+    }
+    return new AgentOptions(options);
+  }
+
+  Optional<String> getString(String key) {
+    return Optional.ofNullable(_options.get(key));
+  }
+
+  String getString(String key, String defaultValue) {
+    return getString(key).orElse(defaultValue);
+  }
+
+  long getLong(String key, long defaultValue) {
+    String value = _options.get(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of agent option " + key + ": " + value, e);
+    }
+  }
+
+  int getInt(String key, int defaultValue) {
+    return (int) getLong(key, defaultValue);
+  }
+
+  boolean getBoolean(String key, boolean defaultValue) {
+    String value = _options.get(key);
+    return value == null ? defaultValue : Boolean.parseBoolean(value);
+  }
+
+  @Override
+  public String toString() {
+    return _options.toString();
+  }
+}
@@ -0,0 +1,37 @@
+package com.linkedin.util.lambda;
+
+/**
+ * Records analyses of lambda classes as JDK Flight Recorder events. On JDK 11 and later this class is
+ * replaced by a multi-release version, on JDK 8 nothing is recorded.
+ */
+class AnalysisEvents {
+
+  private AnalysisEvents() {
+  }
+
+  static boolean isEnabled() {
+    return false;
+  }
+
+  /**
+   * @return token passed to {@link #end(Object, String, String, LambdaName)}, {@code null} if events are disabled
+   */
+  static Object begin() {
+    return null;
+  }
+
+  static void phase(AgentMetrics.Phase phase, long nanos) {
+  }
+
+  static void ownerCacheHit() {
+  }
+
+  static void ownerRead() {
+  }
+
+  /**
+   * @param lambdaName result of the analysis, {@code null} if it failed
+   */
+  static void end(Object token, String lambdaClass, String ownerClass, LambdaName lambdaName) {
+  }
+}
@@ -0,0 +1,36 @@
+package com.linkedin.util.lambda;
+
+import java.util.Locale;
+
+/**
+ * Determines when lambda classes are analyzed.
+ */
+enum AnalysisMode {
+
+  /**
+   * Lambda class is analyzed when it is loaded.
+   */
+  EAGER,
+
+  /**
+   * Only byte code and source pointer of a lambda class are recorded when it is loaded,
+   * analysis happens when name of the lambda is requested for the first time.
+   */
+  LAZY,
+
+  /**
+   * Lambda class is recorded when it is loaded and analyzed by a background worker.
+   */
+  ASYNC;
+
+  static final String MODE = "mode";
+
+  static AnalysisMode fromOptions(AgentOptions options) {
+    String mode = options.getString(MODE, EAGER.name());
+    try {
+      return valueOf(mode.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid value of agent option " + MODE + ": " + mode);
+    }
+  }
+}
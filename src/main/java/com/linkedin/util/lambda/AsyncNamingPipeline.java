@@ -0,0 +1,126 @@
+package com.linkedin.util.lambda;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzes lambda classes on a small pool of background daemon threads fed by a bounded queue.
+ * What happens when the queue is full is determined by {@link OverflowPolicy}.
+ */
+class AsyncNamingPipeline {
+
+  static final String WORKERS = "workers";
+  static final String QUEUE_SIZE = "queueSize";
+  static final String OVERFLOW = "overflow";
+
+  enum OverflowPolicy {
+    /**
+     * Lambda is analyzed on demand when its name is requested.
+     */
+    LAZY,
+    /**
+     * Lambda is analyzed on the class loading thread.
+     */
+    INLINE,
+    /**
+     * Class loading thread waits until there is space in the queue.
+     */
+    BLOCK,
+    /**
+     * Lambda is not named.
+     */
+    DISCARD
+  }
+
+  private final ThreadPoolExecutor _executor;
+  private final OverflowPolicy _overflowPolicy;
+  private final AtomicLong _overflows = new AtomicLong();
+
+  AsyncNamingPipeline(int workers, int queueSize, OverflowPolicy overflowPolicy) {
+    _overflowPolicy = overflowPolicy;
+    _executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize), new WorkerThreadFactory(), new OverflowHandler());
+  }
+
+  static AsyncNamingPipeline fromOptions(AgentOptions options) {
+    String overflow = options.getString(OVERFLOW, OverflowPolicy.LAZY.name());
+    OverflowPolicy overflowPolicy;
+    try {
+      overflowPolicy = OverflowPolicy.valueOf(overflow.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid value of agent option " + OVERFLOW + ": " + overflow);
+    }
+    return new AsyncNamingPipeline(options.getInt(WORKERS, 1), options.getInt(QUEUE_SIZE, 10000), overflowPolicy);
+  }
+
+  void submit(PendingLambda pending) {
+    pending.setQueued(true);
+    _executor.execute(new NamingTask(pending));
+  }
+
+  long getOverflows() {
+    return _overflows.get();
+  }
+
+  private static class NamingTask implements Runnable {
+
+    private final PendingLambda _pending;
+
+    private NamingTask(PendingLambda pending) {
+      _pending = pending;
+    }
+
+    @Override
+    public void run() {
+      LambdaNames.resolved(_pending, _pending.resolve());
+    }
+  }
+
+  private class OverflowHandler implements RejectedExecutionHandler {
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+      _overflows.incrementAndGet();
+      PendingLambda pending = ((NamingTask) r)._pending;
+      switch (_overflowPolicy) {
+        case INLINE:
+          r.run();
+          break;
+        case BLOCK:
+          try {
+            executor.getQueue().put(r);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.setQueued(false);
+          }
+          break;
+        case DISCARD:
+          pending.discard();
+          LambdaNames.resolved(pending, Optional.empty());
+          break;
+        default:
+          pending.setQueued(false);
+          break;
+      }
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger _count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "lambda-names-worker-" + _count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
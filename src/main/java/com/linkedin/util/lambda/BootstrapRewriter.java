@@ -0,0 +1,210 @@
+package com.linkedin.util.lambda;
+
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Rewrites LambdaMetafactory bootstrap methods of lambda call sites to {@link LambdaBootstraps}, which
+ * tell lambda classes apart by their identity. Used when lambda classes are hidden classes (JDK 15+)
+ * and are never passed to class file transformers. Each call site gets the method that contains it and
+ * its number within the method as extra bootstrap arguments, see {@link CallSiteIndex#getSite(String, int)}.
+ * Order of methods is not used because it changes when a loaded class is retransformed.
+ */
+class BootstrapRewriter {
+
+  static final String REWRITE_BOOTSTRAPS = "rewriteBootstraps";
+
+  private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+  private static final String AGENT_PACKAGE = LambdaBootstraps.class.getPackage().getName() + ".";
+  private static final String BOOTSTRAPS = Type.getInternalName(LambdaBootstraps.class);
+  private static final String METAFACTORY_DESC =
+      "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+      + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;Ljava/lang/String;I)"
+      + "Ljava/lang/invoke/CallSite;";
+  private static final String ALT_METAFACTORY_DESC =
+      "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;[Ljava/lang/Object;)"
+      + "Ljava/lang/invoke/CallSite;";
+
+  private final Map<ClassLoader, Boolean> _visible = new WeakHashMap<>();
+  private final LambdaFilter _filter;
+
+  BootstrapRewriter() {
+    this(LambdaFilter.acceptAll());
+  }
+
+  BootstrapRewriter(LambdaFilter filter) {
+    _filter = filter;
+  }
+
+  /**
+   * @return true if lambda classes can't be analyzed by class file transformers on this JVM
+   */
+  static boolean hasHiddenClasses() {
+    try {
+      Class.class.getMethod("isHidden");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return rewritten class or {@code null} if class has no lambda call sites or can't see {@link LambdaBootstraps}
+   */
+  byte[] rewrite(ClassLoader loader, String className, ProtectionDomain protectionDomain, byte[] byteCode) {
+    if (className == null || isAgentClass(className.replace('/', '.'), protectionDomain)
+        || className.startsWith("org/objectweb/asm/") || !_filter.acceptsHost(className)
+        || !ConstantPool.referencesLambdaMetafactory(byteCode)
+        || !canSeeBootstraps(loader)) {
+      return null;
+    }
+    ClassReader reader = new ClassReader(byteCode);
+    Set<String> methods = methodsWithCallSites(reader);
+    if (methods.isEmpty()) {
+      return null;
+    }
+    //frames and maxs do not change, rewritten instructions have the same stack effect; methods without
+    //lambda call sites are copied as they are by the writer that shares constant pool with the reader
+    ClassWriter writer = new ClassWriter(reader, 0);
+    RewritingClassVisitor cv = new RewritingClassVisitor(writer, _filter, methods);
+    reader.accept(cv, 0);
+    return cv._rewritten > 0 ? writer.toByteArray() : null;
+  }
+
+  /**
+   * @return names and descriptors of methods that contain lambda call sites
+   */
+  private static Set<String> methodsWithCallSites(ClassReader reader) {
+    Set<String> methods = new HashSet<>();
+    reader.accept(new ClassVisitor(Opcodes.ASM9) {
+
+      private String _method;
+
+      private final MethodVisitor _methodVisitor = new MethodVisitor(api) {
+
+        @Override
+        public void visitInvokeDynamicInsn(String indyName, String indyDesc, Handle bsm, Object... bsmArgs) {
+          if (bsm.getOwner().equals(LAMBDA_METAFACTORY)) {
+            methods.add(_method);
+          }
+        }
+      };
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        _method = name + desc;
+        return _methodVisitor;
+      }
+    }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return methods;
+  }
+
+  /**
+   * Lambdas of the agent itself are not named, linking them must not call back into the agent.
+   * Other classes in the agent package, e.g. its tests, are rewritten.
+   */
+  static boolean isAgentClass(String className, ProtectionDomain protectionDomain) {
+    return className.startsWith(AGENT_PACKAGE) && (protectionDomain == null
+        || Objects.equals(codeSource(protectionDomain), codeSource(LambdaBootstraps.class.getProtectionDomain())));
+  }
+
+  private static URL codeSource(ProtectionDomain protectionDomain) {
+    CodeSource codeSource = protectionDomain.getCodeSource();
+    return codeSource != null ? codeSource.getLocation() : null;
+  }
+
+  /**
+   * Rewritten class would fail to link if its class loader can't load {@link LambdaBootstraps}.
+   */
+  private boolean canSeeBootstraps(ClassLoader loader) {
+    if (loader == null) {
+      return false;
+    }
+    synchronized (_visible) {
+      Boolean visible = _visible.get(loader);
+      if (visible != null) {
+        return visible;
+      }
+    }
+    boolean visible;
+    try {
+      visible = Class.forName(LambdaBootstraps.class.getName(), false, loader) == LambdaBootstraps.class;
+    } catch (ClassNotFoundException | LinkageError e) {
+      visible = false;
+    }
+    synchronized (_visible) {
+      _visible.put(loader, visible);
+    }
+    return visible;
+  }
+
+  private static class RewritingClassVisitor extends ClassVisitor {
+
+    private final LambdaFilter _filter;
+    private final Set<String> _methods;
+    private int _rewritten;
+
+    private RewritingClassVisitor(ClassVisitor cv, LambdaFilter filter, Set<String> methods) {
+      super(Opcodes.ASM9, cv);
+      _filter = filter;
+      _methods = methods;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      String method = name + desc;
+      MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+      if (!_methods.contains(method)) {
+        //writer's own method visitor lets the reader copy the method without parsing it
+        return mv;
+      }
+      return new MethodVisitor(api, mv) {
+
+        private int _sites;
+
+        @Override
+        public void visitInvokeDynamicInsn(String indyName, String indyDesc, Handle bsm, Object... bsmArgs) {
+          //same sites as the ones found by CallSiteIndex so that numbers match
+          if (bsm.getOwner().equals(LAMBDA_METAFACTORY) && bsmArgs.length > 1 && bsmArgs[1] instanceof Handle) {
+            int site = _sites++;
+            if (!_filter.acceptsInterface(Type.getReturnType(indyDesc).getInternalName())) {
+              AgentMetrics.getInstance().filtered();
+              super.visitInvokeDynamicInsn(indyName, indyDesc, bsm, bsmArgs);
+              return;
+            }
+            Object[] args = Arrays.copyOf(bsmArgs, bsmArgs.length + 2);
+            args[bsmArgs.length] = method;
+            args[bsmArgs.length + 1] = site;
+            if (bsm.getName().equals("metafactory")) {
+              super.visitInvokeDynamicInsn(indyName, indyDesc,
+                  new Handle(Opcodes.H_INVOKESTATIC, BOOTSTRAPS, "metafactory", METAFACTORY_DESC, false), args);
+              _rewritten++;
+              return;
+            } else if (bsm.getName().equals("altMetafactory")) {
+              super.visitInvokeDynamicInsn(indyName, indyDesc,
+                  new Handle(Opcodes.H_INVOKESTATIC, BOOTSTRAPS, "altMetafactory", ALT_METAFACTORY_DESC, false), args);
+              _rewritten++;
+              return;
+            }
+          }
+          super.visitInvokeDynamicInsn(indyName, indyDesc, bsm, bsmArgs);
+        }
+      };
+    }
+  }
+}
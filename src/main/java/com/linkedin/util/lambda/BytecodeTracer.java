@@ -0,0 +1,150 @@
+package com.linkedin.util.lambda;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.util.TraceClassVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dumps disassembled byte code of lambda classes to a rotating file.
+ * Class loading thread only enqueues byte code, disassembling and writing happens
+ * on a background daemon thread. If the queue is full byte code is dropped.
+ */
+class BytecodeTracer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BytecodeTracer.class);
+
+  static final String TRACE = "trace";
+  static final String TRACE_MAX_FILE_SIZE = "traceMaxFileSize";
+  static final String TRACE_MAX_FILES = "traceMaxFiles";
+  static final String TRACE_QUEUE_SIZE = "traceQueueSize";
+
+  private final File _file;
+  private final long _maxFileSize;
+  private final int _maxFiles;
+  private final BlockingQueue<byte[]> _queue;
+  private final AtomicLong _dropped = new AtomicLong();
+
+  private OutputStream _out;
+  private long _written;
+
+  BytecodeTracer(File file, long maxFileSize, int maxFiles, int queueSize) {
+    _file = file;
+    _maxFileSize = maxFileSize;
+    _maxFiles = maxFiles;
+    _queue = new ArrayBlockingQueue<>(queueSize);
+  }
+
+  static BytecodeTracer fromOptions(AgentOptions options) {
+    return options.getString(TRACE)
+        .map(file -> new BytecodeTracer(new File(file),
+            options.getLong(TRACE_MAX_FILE_SIZE, 10 * 1024 * 1024),
+            options.getInt(TRACE_MAX_FILES, 5),
+            options.getInt(TRACE_QUEUE_SIZE, 1024)))
+        .orElse(null);
+  }
+
+  void start() {
+    Thread thread = new Thread(this::run, "lambda-names-tracer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Never blocks, byte code is dropped if background thread does not keep up.
+   */
+  void trace(byte[] byteCode) {
+    if (!_queue.offer(byteCode)) {
+      _dropped.incrementAndGet();
+    }
+  }
+
+  long getDropped() {
+    return _dropped.get();
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        byte[] trace;
+        try {
+          trace = disassemble(_queue.take());
+        } catch (RuntimeException e) {
+          //class that ASM can't read is skipped, tracing continues with the next one
+          LOGGER.debug("Failed disassembling lambda class", e);
+          continue;
+        }
+        write(trace);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOGGER.error("Failed writing lambda byte code trace to " + _file + ", tracing disabled", e);
+    } finally {
+      closeQuietly();
+    }
+  }
+
+  private static byte[] disassemble(byte[] byteCode) {
+    StringWriter sw = new StringWriter();
+    new ClassReader(byteCode).accept(new TraceClassVisitor(new PrintWriter(sw)), 0);
+    return sw.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void write(byte[] trace) throws IOException {
+    if (_out == null) {
+      _out = new FileOutputStream(_file, true);
+      _written = _file.length();
+    } else if (_written + trace.length > _maxFileSize) {
+      rotate();
+    }
+    _out.write(trace);
+    _out.flush();
+    _written += trace.length;
+  }
+
+  private void rotate() throws IOException {
+    _out.close();
+    for (int i = _maxFiles - 1; i > 0; i--) {
+      File older = rotated(i);
+      if (older.exists()) {
+        File target = rotated(i + 1);
+        target.delete();
+        older.renameTo(target);
+      }
+    }
+    if (_maxFiles > 0) {
+      File first = rotated(1);
+      first.delete();
+      _file.renameTo(first);
+    } else {
+      _file.delete();
+    }
+    _out = new FileOutputStream(_file, false);
+    _written = 0;
+  }
+
+  private File rotated(int index) {
+    return new File(_file.getPath() + "." + index);
+  }
+
+  private void closeQuietly() {
+    if (_out != null) {
+      try {
+        _out.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.linkedin.util.lambda;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Index of LambdaMetafactory invokedynamic sites of a class keyed by the implementation method
+ * of the lambda. Lambda class calls its implementation method so its call site can be found
+ * without capturing the stack or searching for line numbers, also when there are multiple
+ * lambdas on one line.
+ */
+class CallSiteIndex {
+
+  static final String CALL_SITE_INDEX = "callSiteIndex";
+  static final String STACK_FALLBACK = "stackFallback";
+
+  private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+
+  private static volatile boolean _enabled = true;
+  private static volatile boolean _stackFallback = true;
+
+  private final String _className;
+  private final List<Site> _sites = new ArrayList<>();
+  private final Map<String, List<Site>> _sitesByImpl = new HashMap<>();
+  private final Map<String, List<Site>> _sitesByImplName = new HashMap<>();
+  private final Map<String, List<Site>> _sitesByMethod = new HashMap<>();
+
+  CallSiteIndex(OwnerClass ownerClass) {
+    _className = ownerClass.getName().replace('/', '.');
+    for (MethodNode method : ownerClass.getMethods()) {
+      int line = 0;
+      for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+        if (insn instanceof LineNumberNode) {
+          line = ((LineNumberNode) insn).line;
+        } else if (insn instanceof InvokeDynamicInsnNode) {
+          InvokeDynamicInsnNode indy = (InvokeDynamicInsnNode) insn;
+          if (indy.bsm.getOwner().equals(LAMBDA_METAFACTORY) && indy.bsmArgs.length > 1
+              && indy.bsmArgs[1] instanceof Handle) {
+            Handle impl = (Handle) indy.bsmArgs[1];
+            Site site = new Site(method, indy, impl, line);
+            _sites.add(site);
+            _sitesByMethod.computeIfAbsent(method.name + method.desc, k -> new ArrayList<>(1)).add(site);
+            _sitesByImpl.computeIfAbsent(impl.getOwner() + '.' + impl.getName() + impl.getDesc(),
+                k -> new ArrayList<>(1)).add(site);
+            _sitesByImplName.computeIfAbsent(impl.getName() + impl.getDesc(), k -> new ArrayList<>(1)).add(site);
+          }
+        }
+      }
+    }
+  }
+
+  static void configure(AgentOptions options) {
+    _enabled = options.getBoolean(CALL_SITE_INDEX, true);
+    //lazy and asynchronous analyses can't tell on the loading thread whether the index resolves the call site,
+    //they would capture the stack of every lambda
+    _stackFallback = options.getBoolean(STACK_FALLBACK, AnalysisMode.fromOptions(options) == AnalysisMode.EAGER);
+  }
+
+  static boolean isEnabled() {
+    return _enabled;
+  }
+
+  /**
+   * @return true if stack should be captured when call site can't be found in the index
+   */
+  static boolean isStackFallback() {
+    return _stackFallback;
+  }
+
+  /**
+   * @return all lambda call sites of the class
+   */
+  List<Site> getSites() {
+    return _sites;
+  }
+
+  /**
+   * @param method name and descriptor of the method that contains the call site
+   * @param index number of the call site within the method
+   */
+  Optional<Site> getSite(String method, int index) {
+    List<Site> sites = _sitesByMethod.get(method);
+    return sites != null && index < sites.size() ? Optional.of(sites.get(index)) : Optional.empty();
+  }
+
+  /**
+   * Finds call site of a lambda with given implementation method. Implementation owner declared
+   * in the class may differ from the one lambda class calls e.g. for inherited methods, in that case
+   * call site is matched by name and descriptor.
+   */
+  Optional<LambdaCallSite> find(String implOwner, String implName, String implDesc) {
+    List<Site> sites = sites(implOwner, implName, implDesc);
+    if (sites != null && sites.size() == 1) {
+      Site site = sites.get(0);
+      return Optional.of(new LambdaCallSite(site.getSourcePointer(),
+          () -> MethodRefOwnerFinder.findOwner(site._method, site._indy)));
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Same implementation method used by multiple sites can only be approximated if all of them are
+   * in the same method, then line number and receiver are unknown.
+   */
+  Optional<LambdaCallSite> findApproximate(String implOwner, String implName, String implDesc) {
+    List<Site> sites = sites(implOwner, implName, implDesc);
+    if (sites == null) {
+      return Optional.empty();
+    }
+    Site first = sites.get(0);
+    for (Site site : sites) {
+      if (site._method != first._method) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(new LambdaCallSite(new SourcePointer(_className, first._method.name, 0), Optional::empty));
+  }
+
+  private List<Site> sites(String implOwner, String implName, String implDesc) {
+    List<Site> sites = _sitesByImpl.get(implOwner + '.' + implName + implDesc);
+    return sites != null ? sites : _sitesByImplName.get(implName + implDesc);
+  }
+
+  class Site {
+
+    private final MethodNode _method;
+    private final InvokeDynamicInsnNode _indy;
+    private final Handle _impl;
+    private final int _line;
+
+    private Site(MethodNode method, InvokeDynamicInsnNode indy, Handle impl, int line) {
+      _method = method;
+      _indy = indy;
+      _impl = impl;
+      _line = line;
+    }
+
+    MethodNode getMethod() {
+      return _method;
+    }
+
+    InvokeDynamicInsnNode getInvokeDynamic() {
+      return _indy;
+    }
+
+    /**
+     * @return implementation method of the lambda
+     */
+    Handle getImpl() {
+      return _impl;
+    }
+
+    SourcePointer getSourcePointer() {
+      return new SourcePointer(_className, _method.name, _line);
+    }
+  }
+}
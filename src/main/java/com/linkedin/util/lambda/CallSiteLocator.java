@@ -0,0 +1,17 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+
+/**
+ * Locates code that caused lambda class to be created. On JDK 9 and later this class is
+ * replaced by a multi-release version based on {@code java.lang.StackWalker}.
+ */
+class CallSiteLocator {
+
+  private CallSiteLocator() {
+  }
+
+  static Optional<SourcePointer> locate() {
+    return SourcePointer.fromStackTrace();
+  }
+}
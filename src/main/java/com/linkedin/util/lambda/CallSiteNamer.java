@@ -0,0 +1,135 @@
+package com.linkedin.util.lambda;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Names lambda call sites without lambda classes, based only on the class that contains them.
+ * Operation is inferred from the implementation method the same way {@link NameGenMethodVisitor}
+ * infers it from the method called by a lambda class.
+ */
+class CallSiteNamer {
+
+  private CallSiteNamer() {
+  }
+
+  /**
+   * Names all lambda call sites of a class, keyed by {@link PrecomputedNames#key}. Lambdas that share
+   * an implementation method and are named differently, or can't be named, are left out.
+   * @param bySite if {@code true} names are also keyed by {@link PrecomputedNames#siteKey}, which identifies
+   * lambdas linked through rewritten bootstraps
+   */
+  static ClassNames nameAll(ClassReader reader, boolean bySite) {
+    ClassNode classNode = new ClassNode(Opcodes.ASM9);
+    //frames are not needed, debug information is: line numbers and names of variables
+    reader.accept(classNode, ClassReader.SKIP_FRAMES);
+    OwnerClass ownerClass = new OwnerClass(classNode);
+    ClassNames names = new ClassNames();
+    Map<String, Integer> sitesPerMethod = new HashMap<>();
+    for (CallSiteIndex.Site site : ownerClass.getCallSiteIndex().getSites()) {
+      String method = site.getMethod().name + site.getMethod().desc;
+      int index = sitesPerMethod.merge(method, 1, Integer::sum) - 1;
+      String key = PrecomputedNames.key(ownerClass.getName(), site.getImpl().getOwner(), site.getImpl().getName(),
+          site.getImpl().getDesc());
+      Optional<String> name;
+      try {
+        name = name(ownerClass, site);
+      } catch (RuntimeException e) {
+        //e.g. class compiled without local variable tables, lambda will be named at runtime
+        name = Optional.empty();
+      }
+      if (!name.isPresent()) {
+        names._ambiguous.add(key);
+        continue;
+      }
+      names._namedSites++;
+      if (bySite) {
+        names._names.put(PrecomputedNames.siteKey(ownerClass.getName(), method, index), name.get());
+      }
+      String previous = names._names.put(key, name.get());
+      if (previous != null && !previous.equals(name.get())) {
+        names._ambiguous.add(key);
+      }
+    }
+    names._names.keySet().removeAll(names._ambiguous);
+    return names;
+  }
+
+  static Optional<String> name(OwnerClass ownerClass, CallSiteIndex.Site site) {
+    return lambdaName(ownerClass, site, ownerClass.getName()).getName();
+  }
+
+  static LambdaName lambdaName(OwnerClass ownerClass, CallSiteIndex.Site site, String lambdaClassName) {
+    String inferredOperation = inferOperation(ownerClass, site).orElse(null);
+    return new LambdaName(lambdaClassName, inferredOperation, site.getSourcePointer());
+  }
+
+  static Optional<String> inferOperation(OwnerClass ownerClass, CallSiteIndex.Site site) {
+    Handle impl = site.getImpl();
+    switch (impl.getTag()) {
+      case Opcodes.H_INVOKESTATIC:
+        if (impl.getName().startsWith("lambda$")) {
+          return inferBlockOperation(ownerClass, site, impl);
+        }
+        return Optional.of(Util.extractSimpleName(impl.getOwner(), "/") + "::" + impl.getName());
+      case Opcodes.H_INVOKEVIRTUAL:
+      case Opcodes.H_INVOKESPECIAL:
+        if (impl.getName().startsWith("lambda$")) {
+          return inferBlockOperation(ownerClass, site, impl);
+        }
+        return Optional.of(MethodRefOwnerFinder.findOwner(site.getMethod(), site.getInvokeDynamic())
+            .map(owner -> owner + "::" + impl.getName())
+            .orElse(impl.getName()));
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private static Optional<String> inferBlockOperation(OwnerClass ownerClass, CallSiteIndex.Site site, Handle impl) {
+    Optional<MethodNode> method = ownerClass.getMethod(impl.getName(), impl.getDesc());
+    if (!method.isPresent()) {
+      return Optional.empty();
+    }
+    //first bootstrap argument is the erased type of the implemented interface method
+    Object samType = site.getInvokeDynamic().bsmArgs[0];
+    int lambdaArity = samType instanceof Type ? ((Type) samType).getArgumentTypes().length : -1;
+    LambdaClassVisitor cv = new LambdaClassVisitor(Opcodes.ASM9, impl.getName(), impl.getDesc(), lambdaArity,
+        op -> {}, null);
+    return Optional.ofNullable(cv.visitLambdaMethod(method.get()));
+  }
+
+  static class ClassNames {
+
+    private final Map<String, String> _names = new HashMap<>();
+    private final Set<String> _ambiguous = new HashSet<>();
+    private int _namedSites;
+
+    Map<String, String> getNames() {
+      return _names;
+    }
+
+    /**
+     * @return keys of lambdas left out
+     */
+    Set<String> getAmbiguous() {
+      return _ambiguous;
+    }
+
+    /**
+     * @return number of call sites that were named
+     */
+    int getNamedSites() {
+      return _namedSites;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+
+/**
+ * Finds call site of a lambda given implementation method called by the lambda class.
+ */
+@FunctionalInterface
+interface CallSiteResolver {
+
+  CallSiteResolver NONE = (implOwner, implName, implDesc) -> Optional.empty();
+
+  Optional<LambdaCallSite> resolve(String implOwner, String implName, String implDesc);
+
+  /**
+   * @return name of the lambda computed at build time, lambda with a precomputed name is not analyzed
+   */
+  default Optional<String> precomputedName(String implOwner, String implName, String implDesc) {
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,246 @@
+package com.linkedin.util.lambda;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Names lambdas of all classes on the application class path in the background, right after the agent
+ * is loaded, the same way {@link LambdaNameIndexer} names them at build time. Names are added to
+ * {@link PrecomputedNames} as soon as a class is scanned, so that a lambda linked later is named
+ * without analyzing its owner class on the linking thread.
+ * <p>
+ * Jars and directories are scanned in parallel on a {@link ForkJoinPool}. Each scan thread spends at
+ * most {@value #WARM_UP_CPU_PERCENT} percent of its time scanning, it sleeps for the rest.
+ */
+class ClasspathWarmUp {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathWarmUp.class);
+
+  static final String WARM_UP = "warmUp";
+  static final String WARM_UP_THREADS = "warmUpThreads";
+  static final String WARM_UP_CPU_PERCENT = "warmUpCpuPercent";
+
+  private static final String CLASS_SUFFIX = ".class";
+  private static final int CLASSES_PER_TASK = 64;
+  private static final long MIN_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final List<File> _classPath;
+  private final ClassLoader _loader;
+  private final LambdaFilter _filter;
+  private final int _threads;
+  private final int _cpuPercent;
+  private final AtomicInteger _scannedClasses = new AtomicInteger();
+  private final AtomicInteger _namedLambdas = new AtomicInteger();
+
+  ClasspathWarmUp(List<File> classPath, ClassLoader loader, LambdaFilter filter, int threads, int cpuPercent) {
+    if (threads < 1 || cpuPercent < 1 || cpuPercent > 100) {
+      throw new IllegalArgumentException("Invalid warm up threads " + threads + " or CPU percent " + cpuPercent);
+    }
+    _classPath = classPath;
+    _loader = loader;
+    _filter = filter;
+    _threads = threads;
+    _cpuPercent = cpuPercent;
+  }
+
+  /**
+   * @return warm up of the application class path or {@code null} if it is not enabled
+   */
+  static ClasspathWarmUp fromOptions(AgentOptions options, LambdaFilter filter) {
+    if (!options.getBoolean(WARM_UP, false)) {
+      return null;
+    }
+    List<File> classPath = Stream.of(System.getProperty("java.class.path", "").split(File.pathSeparator))
+        .filter(entry -> !entry.isEmpty())
+        .map(File::new)
+        .collect(Collectors.toList());
+    return new ClasspathWarmUp(classPath, ClassLoader.getSystemClassLoader(), filter,
+        options.getInt(WARM_UP_THREADS, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+        options.getInt(WARM_UP_CPU_PERCENT, 50));
+  }
+
+  void start() {
+    Thread thread = new Thread(this::run, "lambda-names-warmup");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Scans the class path and waits until it is done.
+   */
+  void run() {
+    long start = System.nanoTime();
+    PrecomputedNames.warmUp(_loader);
+    ForkJoinPool pool = new ForkJoinPool(_threads, ClasspathWarmUp::newThread, null, false);
+    try {
+      List<RecursiveAction> tasks = new ArrayList<>();
+      for (File entry : _classPath) {
+        tasks.add(new EntryTask(entry));
+      }
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+      LOGGER.info("Warmed up names of " + _namedLambdas.get() + " lambdas from " + _scannedClasses.get() + " classes in "
+          + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed warming up lambda names", e);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  int getScannedClasses() {
+    return _scannedClasses.get();
+  }
+
+  /**
+   * @return number of lambdas named so far
+   */
+  int getNamedLambdas() {
+    return _namedLambdas.get();
+  }
+
+  private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+    thread.setName("lambda-names-warmup-" + thread.getPoolIndex());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Lists classes of a jar or a directory and scans them in chunks.
+   */
+  private class EntryTask extends RecursiveAction {
+
+    private final File _entry;
+
+    private EntryTask(File entry) {
+      _entry = entry;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        if (_entry.isDirectory()) {
+          scanDirectory();
+        } else if (_entry.isFile()) {
+          scanJar();
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Failed warming up lambda names of " + _entry, e);
+      }
+    }
+
+    private void scanDirectory() throws IOException {
+      List<Path> classes;
+      try (Stream<Path> files = Files.walk(_entry.toPath())) {
+        classes = files.filter(file -> file.toString().endsWith(CLASS_SUFFIX)).collect(Collectors.toList());
+      }
+      invokeAll(chunks(classes, Files::readAllBytes));
+    }
+
+    private void scanJar() throws IOException {
+      try (JarFile jar = new JarFile(_entry)) {
+        List<JarEntry> classes = new ArrayList<>();
+        for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+          JarEntry entry = entries.nextElement();
+          //classes of other Java versions are not loaded from META-INF/versions by default
+          if (entry.getName().endsWith(CLASS_SUFFIX) && !entry.getName().startsWith("META-INF/")) {
+            classes.add(entry);
+          }
+        }
+        //reading entries of a jar file from multiple threads is safe
+        invokeAll(chunks(classes, entry -> {
+          try (InputStream is = jar.getInputStream(entry)) {
+            return Util.readFully(is);
+          }
+        }));
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ByteCodeReader<T> {
+    byte[] read(T source) throws IOException;
+  }
+
+  private <T> List<ChunkTask<T>> chunks(List<T> classes, ByteCodeReader<T> reader) {
+    List<ChunkTask<T>> chunks = new ArrayList<>();
+    for (int i = 0; i < classes.size(); i += CLASSES_PER_TASK) {
+      chunks.add(new ChunkTask<>(classes.subList(i, Math.min(i + CLASSES_PER_TASK, classes.size())), reader));
+    }
+    return chunks;
+  }
+
+  private class ChunkTask<T> extends RecursiveAction {
+
+    private final List<T> _classes;
+    private final ByteCodeReader<T> _reader;
+
+    private ChunkTask(List<T> classes, ByteCodeReader<T> reader) {
+      _classes = classes;
+      _reader = reader;
+    }
+
+    @Override
+    protected void compute() {
+      long sleepNanos = 0;
+      for (T source : _classes) {
+        long start = System.nanoTime();
+        try {
+          scan(_reader.read(source));
+        } catch (IOException | RuntimeException e) {
+          //e.g. class compiled without local variable tables, lambda will be named when it is linked
+          LOGGER.debug("Failed warming up lambda names of " + source, e);
+        }
+        //time spent scanning is paid back by sleeping, short sleeps are not precise so they are accumulated
+        sleepNanos += (System.nanoTime() - start) * (100 - _cpuPercent) / _cpuPercent;
+        if (sleepNanos >= MIN_SLEEP_NANOS) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          sleepNanos = 0;
+        }
+      }
+    }
+  }
+
+  void scan(byte[] byteCode) {
+    _scannedClasses.incrementAndGet();
+    if (!ConstantPool.referencesLambdaMetafactory(byteCode)) {
+      return;
+    }
+    ClassReader reader = new ClassReader(byteCode);
+    if (!_filter.acceptsHost(reader.getClassName())) {
+      return;
+    }
+    CallSiteNamer.ClassNames names = CallSiteNamer.nameAll(reader, true);
+    PrecomputedNames.putWarmedUp(names.getNames());
+    _namedLambdas.addAndGet(names.getNamedSites());
+  }
+}
@@ -0,0 +1,50 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+
+/**
+ * Lambda name kept as ids of interned symbols and a line number. Name string is built
+ * when it is requested, in the same format as {@link LambdaName#getName()}. Symbols are interned
+ * in the table of the class loader that defined the lambda, see {@link NameRegistry#symbols(ClassLoader)}.
+ */
+final class CompactName {
+
+  private static final int NONE = -1;
+
+  private final int _operation;
+  private final int _method;
+  private final int _simpleClassName;
+  private final int _line;
+  private final SymbolTable _symbols;
+
+  private CompactName(int operation, int method, int simpleClassName, int line, SymbolTable symbols) {
+    _symbols = symbols;
+    _operation = operation;
+    _method = method;
+    _simpleClassName = simpleClassName;
+    _line = line;
+  }
+
+  static Optional<CompactName> of(LambdaName lambdaName, SymbolTable symbols) {
+    String operation = lambdaName.getInferredOperation();
+    SourcePointer sourcePointer = lambdaName.getSourcePointer();
+    if (operation == null && sourcePointer == null) {
+      return Optional.empty();
+    }
+    int operationId = operation != null ? symbols.intern(operation) : NONE;
+    if (sourcePointer == null) {
+      return Optional.of(new CompactName(operationId, NONE, NONE, 0, symbols));
+    }
+    return Optional.of(new CompactName(operationId, symbols.intern(sourcePointer._methodName),
+        symbols.intern(Util.extractSimpleName(sourcePointer._className, ".")), sourcePointer._lineNumber, symbols));
+  }
+
+  String format() {
+    SymbolTable symbols = _symbols;
+    if (_method == NONE) {
+      return symbols.get(_operation);
+    }
+    String sourcePointer = SourcePointer.format(symbols.get(_method), symbols.get(_simpleClassName), _line);
+    return _operation == NONE ? sourcePointer : symbols.get(_operation) + " " + sourcePointer;
+  }
+}
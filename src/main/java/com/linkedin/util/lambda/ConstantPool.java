@@ -0,0 +1,89 @@
+package com.linkedin.util.lambda;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scans constant pool of a class without parsing the class.
+ */
+class ConstantPool {
+
+  private static final byte[] LAMBDA_METAFACTORY =
+      "java/lang/invoke/LambdaMetafactory".getBytes(StandardCharsets.UTF_8);
+
+  private ConstantPool() {
+  }
+
+  /**
+   * @return true if class may contain lambdas or method references
+   */
+  static boolean referencesLambdaMetafactory(byte[] b) {
+    return containsUtf8(b, LAMBDA_METAFACTORY);
+  }
+
+  static boolean containsUtf8(byte[] b, byte[] utf8) {
+    if (b.length < 10) {
+      return false;
+    }
+    int count = readUnsignedShort(b, 8);
+    int offset = 10;
+    for (int i = 1; i < count; i++) {
+      if (offset >= b.length) {
+        return false;
+      }
+      switch (b[offset]) {
+        case 1:
+          int length = readUnsignedShort(b, offset + 1);
+          if (length == utf8.length && equals(b, offset + 3, utf8)) {
+            return true;
+          }
+          offset += 3 + length;
+          break;
+        case 3:
+        case 4:
+        case 9:
+        case 10:
+        case 11:
+        case 12:
+        case 17:
+        case 18:
+          offset += 5;
+          break;
+        case 5:
+        case 6:
+          offset += 9;
+          i++;
+          break;
+        case 15:
+          offset += 4;
+          break;
+        case 7:
+        case 8:
+        case 16:
+        case 19:
+        case 20:
+          offset += 3;
+          break;
+        default:
+          //unknown constant, can't tell
+          return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean equals(byte[] b, int offset, byte[] utf8) {
+    if (offset + utf8.length > b.length) {
+      return false;
+    }
+    for (int i = 0; i < utf8.length; i++) {
+      if (b[offset + i] != utf8[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int readUnsignedShort(byte[] b, int index) {
+    return ((b[index] & 0xFF) << 8) | (b[index + 1] & 0xFF);
+  }
+}
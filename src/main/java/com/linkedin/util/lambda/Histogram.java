@@ -0,0 +1,97 @@
+package com.linkedin.util.lambda;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values with power of two buckets. Values are recorded with striped counters
+ * so that concurrent class loading threads do not contend. Percentiles are upper bounds of the buckets
+ * they fall into.
+ */
+class Histogram {
+
+  private static final int BUCKETS = 65;
+
+  private final LongAdder[] _buckets = new LongAdder[BUCKETS];
+  private final LongAdder _count = new LongAdder();
+  private final LongAdder _sum = new LongAdder();
+  private final LongAccumulator _max = new LongAccumulator(Math::max, 0);
+
+  Histogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      _buckets[i] = new LongAdder();
+    }
+  }
+
+  void record(long value) {
+    long v = Math.max(value, 0);
+    _buckets[64 - Long.numberOfLeadingZeros(v)].increment();
+    _count.increment();
+    _sum.add(v);
+    _max.accumulate(v);
+  }
+
+  long getCount() {
+    return _count.sum();
+  }
+
+  long getSum() {
+    return _sum.sum();
+  }
+
+  /**
+   * Adds values recorded by another histogram.
+   */
+  void add(Histogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      _buckets[i].add(other._buckets[i].sum());
+    }
+    _count.add(other._count.sum());
+    _sum.add(other._sum.sum());
+    _max.accumulate(other._max.get());
+  }
+
+  long getMax() {
+    return _max.get();
+  }
+
+  /**
+   * @param percentile between 0 and 1
+   */
+  long getPercentile(double percentile) {
+    long count = _count.sum();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += _buckets[i].sum();
+      if (seen >= rank) {
+        return Math.min(upperBound(i), _max.get());
+      }
+    }
+    return _max.get();
+  }
+
+  private static long upperBound(int bucket) {
+    return bucket == 64 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  /**
+   * Snapshot exposed over JMX, counters are read one by one so it may be slightly inconsistent.
+   */
+  Map<String, Long> toMap() {
+    Map<String, Long> map = new LinkedHashMap<>();
+    long count = _count.sum();
+    map.put("count", count);
+    map.put("mean", count > 0 ? _sum.sum() / count : 0);
+    map.put("p50", getPercentile(0.5));
+    map.put("p90", getPercentile(0.9));
+    map.put("p99", getPercentile(0.99));
+    map.put("max", _max.get());
+    return map;
+  }
+}
@@ -0,0 +1,477 @@
+package com.linkedin.util.lambda;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Scans instructions of a method by index and traces operands of an instruction back to the instructions
+ * that pushed them, using stack effects of the instructions in between. Stack is counted in words,
+ * so that long and double values and all forms of DUP and SWAP are handled exactly. Tracing gives up at
+ * instructions that transfer control, operands of a straight line expression never cross them.
+ * Scanning does not allocate, instructions are accessed through the index cached by {@link InsnList}.
+ */
+final class InsnScanner {
+
+  static final int NOT_FOUND = -1;
+
+  /**
+   * Returned by {@link #pops(AbstractInsnNode)} and {@link #pushes(AbstractInsnNode)} for instructions
+   * that end a straight line sequence.
+   */
+  private static final int UNKNOWN = -1;
+
+  private InsnScanner() {
+  }
+
+  static boolean isReturn(int opcode) {
+    return opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN;
+  }
+
+  static boolean isInvoke(int opcode) {
+    return opcode >= Opcodes.INVOKEVIRTUAL && opcode <= Opcodes.INVOKEINTERFACE;
+  }
+
+  /**
+   * @return index of the first instruction at or after given index with given opcode, or {@link #NOT_FOUND}
+   */
+  static int next(InsnList instructions, int from, int opcode) {
+    for (int i = from; i < instructions.size(); i++) {
+      if (instructions.get(i).getOpcode() == opcode) {
+        return i;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * @return index of the first return instruction at or after given index, or {@link #NOT_FOUND}
+   */
+  static int nextReturn(InsnList instructions, int from) {
+    for (int i = from; i < instructions.size(); i++) {
+      if (isReturn(instructions.get(i).getOpcode())) {
+        return i;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * @return index of the last invoke instruction before given index, or {@link #NOT_FOUND}
+   */
+  static int previousInvoke(InsnList instructions, int before) {
+    for (int i = before - 1; i >= 0; i--) {
+      if (isInvoke(instructions.get(i).getOpcode())) {
+        return i;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Depth in words of the first operand of an instruction on the operand stack, e.g. of the receiver
+   * of a virtual method call or of the first value captured by an invokedynamic.
+   * @return depth or {@link #NOT_FOUND} if instruction has no operands
+   */
+  static int firstOperandDepth(AbstractInsnNode insn) {
+    int pops = pops(insn);
+    return pops > 0 ? pops - 1 : NOT_FOUND;
+  }
+
+  /**
+   * Finds instruction that pushed a word that is on the operand stack right before given instruction.
+   * @param index index of the instruction
+   * @param depth depth of the word, 0 is the top of the stack
+   * @return index of the instruction or {@link #NOT_FOUND}
+   */
+  static int producer(InsnList instructions, int index, int depth) {
+    int needed = depth;
+    for (int i = index - 1; i >= 0; i--) {
+      AbstractInsnNode insn = instructions.get(i);
+      int opcode = insn.getOpcode();
+      if (opcode < 0) {
+        //labels, line numbers and frames
+        continue;
+      }
+      int pushes = pushes(insn);
+      int pops = pops(insn);
+      if (pushes == UNKNOWN || pops == UNKNOWN) {
+        return NOT_FOUND;
+      }
+      if (needed >= pushes) {
+        needed = needed - pushes + pops;
+      } else if (isStackManipulation(opcode)) {
+        //value was copied or moved, continue with the word it came from
+        needed = source(opcode, needed);
+      } else {
+        return i;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  private static boolean isStackManipulation(int opcode) {
+    return opcode >= Opcodes.DUP && opcode <= Opcodes.SWAP;
+  }
+
+  /**
+   * @param depth depth of a word among words pushed by a stack manipulation instruction
+   * @return depth of the word it was copied from among words the instruction popped
+   */
+  private static int source(int opcode, int depth) {
+    switch (opcode) {
+      case Opcodes.DUP:
+        return 0;
+      case Opcodes.DUP_X1:
+        // w2 w1 -> w1 w2 w1
+        return depth == 1 ? 1 : 0;
+      case Opcodes.DUP_X2:
+        // w3 w2 w1 -> w1 w3 w2 w1
+        return depth == 3 ? 0 : depth;
+      case Opcodes.DUP2:
+        // w2 w1 -> w2 w1 w2 w1
+        return depth % 2;
+      case Opcodes.DUP2_X1:
+        // w3 w2 w1 -> w2 w1 w3 w2 w1
+        return depth < 3 ? depth : depth - 3;
+      case Opcodes.DUP2_X2:
+        // w4 w3 w2 w1 -> w2 w1 w4 w3 w2 w1
+        return depth < 4 ? depth : depth - 4;
+      default:
+        // SWAP: w2 w1 -> w1 w2
+        return 1 - depth;
+    }
+  }
+
+  /**
+   * Describes expression that pushed a value, e.g. {@code field}, {@code localVar}, {@code method(_,_)}
+   * or {@code new Type()}.
+   * @param index index of the instruction that pushed the value
+   */
+  static Optional<String> describe(MethodNode method, int index) {
+    AbstractInsnNode insn = method.instructions.get(index);
+    switch (insn.getType()) {
+      case AbstractInsnNode.VAR_INSN:
+        return variableName(method, ((VarInsnNode) insn).var, index);
+      case AbstractInsnNode.FIELD_INSN:
+        return Optional.of(((FieldInsnNode) insn).name);
+      case AbstractInsnNode.METHOD_INSN:
+        MethodInsnNode methodInsn = (MethodInsnNode) insn;
+        return Optional.of(methodInsn.name + placeholders(Type.getArgumentTypes(methodInsn.desc).length));
+      case AbstractInsnNode.TYPE_INSN:
+        TypeInsnNode typeInsn = (TypeInsnNode) insn;
+        if (typeInsn.getOpcode() == Opcodes.NEW) {
+          return Optional.of("new " + Util.extractSimpleName(typeInsn.desc, "/") + "()");
+        } else if (typeInsn.getOpcode() == Opcodes.CHECKCAST) {
+          int producer = producer(method.instructions, index, 0);
+          return producer == NOT_FOUND ? Optional.empty() : describe(method, producer);
+        }
+        return Optional.empty();
+      default:
+        return Optional.empty();
+    }
+  }
+
+  static String placeholders(int count) {
+    StringJoiner sj = new StringJoiner(",", "(", ")");
+    for (int i = 0; i < count; i++) {
+      sj.add("_");
+    }
+    return sj.toString();
+  }
+
+  /**
+   * @param index index of an instruction at which the variable is live, or {@link #NOT_FOUND} to match
+   * variable in given slot regardless of its scope
+   * @return name from the local variable table, empty if method was compiled without it
+   */
+  static Optional<String> variableName(MethodNode method, int slot, int index) {
+    List<LocalVariableNode> localVariables = method.localVariables;
+    if (localVariables == null) {
+      return Optional.empty();
+    }
+    String candidate = null;
+    for (int i = 0; i < localVariables.size(); i++) {
+      LocalVariableNode variable = localVariables.get(i);
+      if (variable.index == slot) {
+        if (index == NOT_FOUND) {
+          return Optional.of(variable.name);
+        }
+        int start = method.instructions.indexOf(variable.start);
+        int end = method.instructions.indexOf(variable.end);
+        //value is stored right before the variable's scope starts
+        if (start <= index + 1 && index < end) {
+          return Optional.of(variable.name);
+        }
+        candidate = variable.name;
+      }
+    }
+    return Optional.ofNullable(candidate);
+  }
+
+  /**
+   * @return number of words popped from the operand stack by an instruction or {@link #UNKNOWN}
+   */
+  static int pops(AbstractInsnNode insn) {
+    int opcode = insn.getOpcode();
+    switch (opcode) {
+      case Opcodes.NOP:
+      case Opcodes.ACONST_NULL:
+      case Opcodes.ICONST_M1:
+      case Opcodes.ICONST_0:
+      case Opcodes.ICONST_1:
+      case Opcodes.ICONST_2:
+      case Opcodes.ICONST_3:
+      case Opcodes.ICONST_4:
+      case Opcodes.ICONST_5:
+      case Opcodes.LCONST_0:
+      case Opcodes.LCONST_1:
+      case Opcodes.FCONST_0:
+      case Opcodes.FCONST_1:
+      case Opcodes.FCONST_2:
+      case Opcodes.DCONST_0:
+      case Opcodes.DCONST_1:
+      case Opcodes.BIPUSH:
+      case Opcodes.SIPUSH:
+      case Opcodes.LDC:
+      case Opcodes.ILOAD:
+      case Opcodes.LLOAD:
+      case Opcodes.FLOAD:
+      case Opcodes.DLOAD:
+      case Opcodes.ALOAD:
+      case Opcodes.IINC:
+      case Opcodes.GETSTATIC:
+      case Opcodes.NEW:
+        return 0;
+      case Opcodes.ISTORE:
+      case Opcodes.FSTORE:
+      case Opcodes.ASTORE:
+      case Opcodes.POP:
+      case Opcodes.INEG:
+      case Opcodes.FNEG:
+      case Opcodes.I2F:
+      case Opcodes.F2I:
+      case Opcodes.I2B:
+      case Opcodes.I2C:
+      case Opcodes.I2S:
+      case Opcodes.I2L:
+      case Opcodes.I2D:
+      case Opcodes.F2L:
+      case Opcodes.F2D:
+      case Opcodes.DUP:
+      case Opcodes.GETFIELD:
+      case Opcodes.NEWARRAY:
+      case Opcodes.ANEWARRAY:
+      case Opcodes.ARRAYLENGTH:
+      case Opcodes.CHECKCAST:
+      case Opcodes.INSTANCEOF:
+      case Opcodes.MONITORENTER:
+      case Opcodes.MONITOREXIT:
+        return 1;
+      case Opcodes.LSTORE:
+      case Opcodes.DSTORE:
+      case Opcodes.POP2:
+      case Opcodes.IALOAD:
+      case Opcodes.FALOAD:
+      case Opcodes.AALOAD:
+      case Opcodes.BALOAD:
+      case Opcodes.CALOAD:
+      case Opcodes.SALOAD:
+      case Opcodes.LALOAD:
+      case Opcodes.DALOAD:
+      case Opcodes.IADD:
+      case Opcodes.ISUB:
+      case Opcodes.IMUL:
+      case Opcodes.IDIV:
+      case Opcodes.IREM:
+      case Opcodes.ISHL:
+      case Opcodes.ISHR:
+      case Opcodes.IUSHR:
+      case Opcodes.IAND:
+      case Opcodes.IOR:
+      case Opcodes.IXOR:
+      case Opcodes.FADD:
+      case Opcodes.FSUB:
+      case Opcodes.FMUL:
+      case Opcodes.FDIV:
+      case Opcodes.FREM:
+      case Opcodes.FCMPL:
+      case Opcodes.FCMPG:
+      case Opcodes.LNEG:
+      case Opcodes.DNEG:
+      case Opcodes.L2I:
+      case Opcodes.L2F:
+      case Opcodes.D2I:
+      case Opcodes.D2F:
+      case Opcodes.L2D:
+      case Opcodes.D2L:
+      case Opcodes.DUP_X1:
+      case Opcodes.DUP2:
+      case Opcodes.SWAP:
+        return 2;
+      case Opcodes.IASTORE:
+      case Opcodes.FASTORE:
+      case Opcodes.AASTORE:
+      case Opcodes.BASTORE:
+      case Opcodes.CASTORE:
+      case Opcodes.SASTORE:
+      case Opcodes.LSHL:
+      case Opcodes.LSHR:
+      case Opcodes.LUSHR:
+      case Opcodes.DUP_X2:
+      case Opcodes.DUP2_X1:
+        return 3;
+      case Opcodes.LASTORE:
+      case Opcodes.DASTORE:
+      case Opcodes.LADD:
+      case Opcodes.LSUB:
+      case Opcodes.LMUL:
+      case Opcodes.LDIV:
+      case Opcodes.LREM:
+      case Opcodes.LAND:
+      case Opcodes.LOR:
+      case Opcodes.LXOR:
+      case Opcodes.DADD:
+      case Opcodes.DSUB:
+      case Opcodes.DMUL:
+      case Opcodes.DDIV:
+      case Opcodes.DREM:
+      case Opcodes.LCMP:
+      case Opcodes.DCMPL:
+      case Opcodes.DCMPG:
+      case Opcodes.DUP2_X2:
+        return 4;
+      case Opcodes.PUTSTATIC:
+        return fieldSize((FieldInsnNode) insn);
+      case Opcodes.PUTFIELD:
+        return 1 + fieldSize((FieldInsnNode) insn);
+      case Opcodes.INVOKEVIRTUAL:
+      case Opcodes.INVOKESPECIAL:
+      case Opcodes.INVOKEINTERFACE:
+        return (Type.getArgumentsAndReturnSizes(((MethodInsnNode) insn).desc) >> 2);
+      case Opcodes.INVOKESTATIC:
+        return (Type.getArgumentsAndReturnSizes(((MethodInsnNode) insn).desc) >> 2) - 1;
+      case Opcodes.INVOKEDYNAMIC:
+        return (Type.getArgumentsAndReturnSizes(((InvokeDynamicInsnNode) insn).desc) >> 2) - 1;
+      case Opcodes.MULTIANEWARRAY:
+        return ((MultiANewArrayInsnNode) insn).dims;
+      default:
+        //jumps, switches, returns, athrow, jsr and ret
+        return UNKNOWN;
+    }
+  }
+
+  /**
+   * @return number of words pushed to the operand stack by an instruction or {@link #UNKNOWN}
+   */
+  static int pushes(AbstractInsnNode insn) {
+    int opcode = insn.getOpcode();
+    switch (opcode) {
+      case Opcodes.NOP:
+      case Opcodes.ISTORE:
+      case Opcodes.LSTORE:
+      case Opcodes.FSTORE:
+      case Opcodes.DSTORE:
+      case Opcodes.ASTORE:
+      case Opcodes.IASTORE:
+      case Opcodes.LASTORE:
+      case Opcodes.FASTORE:
+      case Opcodes.DASTORE:
+      case Opcodes.AASTORE:
+      case Opcodes.BASTORE:
+      case Opcodes.CASTORE:
+      case Opcodes.SASTORE:
+      case Opcodes.POP:
+      case Opcodes.POP2:
+      case Opcodes.IINC:
+      case Opcodes.PUTSTATIC:
+      case Opcodes.PUTFIELD:
+      case Opcodes.MONITORENTER:
+      case Opcodes.MONITOREXIT:
+        return 0;
+      case Opcodes.LCONST_0:
+      case Opcodes.LCONST_1:
+      case Opcodes.DCONST_0:
+      case Opcodes.DCONST_1:
+      case Opcodes.LLOAD:
+      case Opcodes.DLOAD:
+      case Opcodes.LALOAD:
+      case Opcodes.DALOAD:
+      case Opcodes.LADD:
+      case Opcodes.LSUB:
+      case Opcodes.LMUL:
+      case Opcodes.LDIV:
+      case Opcodes.LREM:
+      case Opcodes.LAND:
+      case Opcodes.LOR:
+      case Opcodes.LXOR:
+      case Opcodes.LSHL:
+      case Opcodes.LSHR:
+      case Opcodes.LUSHR:
+      case Opcodes.LNEG:
+      case Opcodes.DADD:
+      case Opcodes.DSUB:
+      case Opcodes.DMUL:
+      case Opcodes.DDIV:
+      case Opcodes.DREM:
+      case Opcodes.DNEG:
+      case Opcodes.I2L:
+      case Opcodes.I2D:
+      case Opcodes.F2L:
+      case Opcodes.F2D:
+      case Opcodes.L2D:
+      case Opcodes.D2L:
+      case Opcodes.DUP:
+      case Opcodes.SWAP:
+        return 2;
+      case Opcodes.DUP_X1:
+        return 3;
+      case Opcodes.DUP_X2:
+      case Opcodes.DUP2:
+        return 4;
+      case Opcodes.DUP2_X1:
+        return 5;
+      case Opcodes.DUP2_X2:
+        return 6;
+      case Opcodes.LDC:
+        Object cst = ((LdcInsnNode) insn).cst;
+        return cst instanceof Long || cst instanceof Double ? 2 : 1;
+      case Opcodes.GETSTATIC:
+      case Opcodes.GETFIELD:
+        return fieldSize((FieldInsnNode) insn);
+      case Opcodes.INVOKEVIRTUAL:
+      case Opcodes.INVOKESPECIAL:
+      case Opcodes.INVOKESTATIC:
+      case Opcodes.INVOKEINTERFACE:
+        return Type.getArgumentsAndReturnSizes(((MethodInsnNode) insn).desc) & 0x03;
+      case Opcodes.INVOKEDYNAMIC:
+        return Type.getArgumentsAndReturnSizes(((InvokeDynamicInsnNode) insn).desc) & 0x03;
+      default:
+        return isControlTransfer(opcode) ? UNKNOWN : 1;
+    }
+  }
+
+  private static boolean isControlTransfer(int opcode) {
+    return (opcode >= Opcodes.IFEQ && opcode <= Opcodes.RETURN) || opcode == Opcodes.ATHROW
+        || opcode == Opcodes.IFNULL || opcode == Opcodes.IFNONNULL;
+  }
+
+  private static int fieldSize(FieldInsnNode insn) {
+    char type = insn.desc.charAt(0);
+    return type == 'J' || type == 'D' ? 2 : 1;
+  }
+}
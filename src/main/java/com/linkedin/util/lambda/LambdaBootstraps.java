@@ -0,0 +1,92 @@
+package com.linkedin.util.lambda;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleInfo;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Bootstrap methods that replace {@link LambdaMetafactory} in classes rewritten by the agent.
+ * They link lambdas exactly like {@link LambdaMetafactory} and record which call site created
+ * the lambda class. Not meant to be called directly.
+ */
+public final class LambdaBootstraps {
+
+  private LambdaBootstraps() {
+  }
+
+  public static CallSite metafactory(MethodHandles.Lookup caller, String invokedName, MethodType invokedType,
+      MethodType samMethodType, MethodHandle implMethod, MethodType instantiatedMethodType, String method, int site)
+      throws LambdaConversionException {
+    CallSite callSite = LambdaMetafactory.metafactory(caller, invokedName, invokedType, samMethodType, implMethod,
+        instantiatedMethodType);
+    linked(caller, invokedType, implMethod, callSite, method, site);
+    return callSite;
+  }
+
+  /**
+   * @param args arguments of {@link LambdaMetafactory#altMetafactory} followed by the method that contains
+   * the call site and the call site number within the method
+   */
+  public static CallSite altMetafactory(MethodHandles.Lookup caller, String invokedName, MethodType invokedType,
+      Object... args) throws LambdaConversionException {
+    CallSite callSite = LambdaMetafactory.altMetafactory(caller, invokedName, invokedType,
+        Arrays.copyOf(args, args.length - 2));
+    linked(caller, invokedType, (MethodHandle) args[1], callSite, (String) args[args.length - 2],
+        (Integer) args[args.length - 1]);
+    return callSite;
+  }
+
+  private static void linked(MethodHandles.Lookup caller, MethodType invokedType, MethodHandle implMethod,
+      CallSite callSite, String method, int site) {
+    try {
+      Class<?> host = caller.lookupClass();
+      LambdaNames.linked(lambdaClass(caller, invokedType, callSite.getTarget()), host.getName().replace('.', '/'),
+          host.getClassLoader(), method, site, implMethod(caller, implMethod));
+    } catch (Throwable t) {
+      //naming must never break linking of a lambda
+    }
+  }
+
+  /**
+   * @return implementation method, by which names computed at build time are keyed, or {@code null}
+   * if the handle can't be cracked
+   */
+  private static MethodHandleInfo implMethod(MethodHandles.Lookup caller, MethodHandle implMethod) {
+    try {
+      return caller.revealDirect(implMethod);
+    } catch (IllegalArgumentException | SecurityException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Lambda class is not exposed by the call site and the target of the call site is not a direct method handle
+   * that could be cracked, so lambda class is the class of an instance created by the target. Target of a lambda
+   * that captures nothing returns the same instance on every call. Target of a capturing lambda is called with
+   * default values of captured arguments: constructors of lambda classes only store captured arguments, captured
+   * receivers of method references are checked for {@code null} by the caller before the call site. Instance is
+   * checked to be a lambda class created in the caller, if any of it does not hold the lambda is not named.
+   */
+  private static Class<?> lambdaClass(MethodHandles.Lookup caller, MethodType invokedType, MethodHandle target)
+      throws Throwable {
+    Object[] args = new Object[invokedType.parameterCount()];
+    for (int i = 0; i < args.length; i++) {
+      Class<?> type = invokedType.parameterType(i);
+      if (type.isPrimitive()) {
+        args[i] = Array.get(Array.newInstance(type, 1), 0);
+      }
+    }
+    Class<?> lambdaClass = target.invokeWithArguments(args).getClass();
+    if (!lambdaClass.isSynthetic() || !invokedType.returnType().isAssignableFrom(lambdaClass)
+        || !lambdaClass.getName().startsWith(caller.lookupClass().getName() + "$$Lambda")) {
+      throw new IllegalStateException("Not a lambda class of " + caller.lookupClass() + ": " + lambdaClass);
+    }
+    return lambdaClass;
+  }
+}
@@ -0,0 +1,42 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Place in the code where lambda or method reference was created.
+ */
+class LambdaCallSite {
+
+  private final SourcePointer _sourcePointer;
+  private final Supplier<Optional<String>> _receiver;
+  private Optional<String> _resolvedReceiver;
+
+  LambdaCallSite(SourcePointer sourcePointer, Supplier<Optional<String>> receiver) {
+    _sourcePointer = sourcePointer;
+    _receiver = receiver;
+  }
+
+  /**
+   * Creates call site found on the stack, receiver of a method reference is looked up
+   * by line number in the class that owns the call site.
+   */
+  static LambdaCallSite fromSourcePointer(SourcePointer sp, ClassLoader loader) {
+    return new LambdaCallSite(sp, () -> OwnerClassCache.getInstance().get(loader, sp._className.replace('.', '/'))
+        .flatMap(ownerClass -> MethodRefOwnerFinder.findOwner(ownerClass, sp._methodName, sp._lineNumber)));
+  }
+
+  SourcePointer getSourcePointer() {
+    return _sourcePointer;
+  }
+
+  /**
+   * @return expression on which method reference was created e.g. {@code field} for {@code field::method}
+   */
+  Optional<String> getReceiver() {
+    if (_resolvedReceiver == null) {
+      _resolvedReceiver = _receiver.get();
+    }
+    return _resolvedReceiver;
+  }
+}
@@ -1,8 +1,5 @@
 package com.linkedin.util.lambda;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.function.Consumer;
 
@@ -11,8 +8,6 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.InsnList;
-import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodNode;
 
 /**
@@ -22,16 +17,25 @@ class LambdaClassVisitor extends ClassVisitor {
 
   private final String _methodName;
   private final String _methodDesc;
+  private final int _lambdaArity;
   private final Consumer<String> _inferredOperationConsumer;
+  private final ClassLoader _loader;
 
   private String _lambdaName;
 
 
-  public LambdaClassVisitor(int api, String name, String desc, Consumer<String> inferredOperationConsumer) {
+  /**
+   * @param lambdaArity number of parameters of the lambda, preceding parameters of the method
+   * are values captured by the lambda, -1 if unknown
+   */
+  public LambdaClassVisitor(int api, String name, String desc, int lambdaArity,
+      Consumer<String> inferredOperationConsumer, ClassLoader loader) {
     super(api);
     _methodName = name;
     _methodDesc = desc;
+    _lambdaArity = lambdaArity;
     _inferredOperationConsumer = inferredOperationConsumer;
+    _loader = loader;
   }
 
   public String getName() {
@@ -42,15 +46,10 @@ class LambdaClassVisitor extends ClassVisitor {
   public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
     MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
     if (name.equals(_methodName) && desc.equals(_methodDesc)) {
-      LambdaMethodVisitor visitor = new LambdaMethodVisitor(api, mv);
-      visitor._state = State.WITH_HIDDEN_ANNOTATION;
       return new MethodNode(api, access, name, desc, signature, exceptions) {
-        @SuppressWarnings("unchecked")
         @Override
         public void visitEnd() {
-          visitor._instructions = instructions;
-          visitor._localVars = localVariables;
-          accept(visitor);
+          visit(this, mv);
         }
       };
     } else {
@@ -58,15 +57,32 @@ class LambdaClassVisitor extends ClassVisitor {
     }
   }
 
+  /**
+   * Analyzes already parsed lambda method, e.g. one cached by {@link OwnerClassCache}, without copying it.
+   * @return name of the lambda
+   */
+  String visitLambdaMethod(MethodNode method) {
+    //replaying a cached method resets its labels, it must not be replayed concurrently
+    synchronized (method) {
+      visit(method, null);
+    }
+    return _lambdaName;
+  }
+
+  private void visit(MethodNode method, MethodVisitor mv) {
+    LambdaMethodVisitor visitor = new LambdaMethodVisitor(api, mv);
+    visitor._state = State.WITH_HIDDEN_ANNOTATION;
+    visitor._method = method;
+    method.accept(visitor);
+  }
+
   //visits synthetic method created by a lambda expression
   private class LambdaMethodVisitor extends NameGenMethodVisitor {
 
-    private List<String> _localVariables = new ArrayList<>();
-    private InsnList _instructions;
-    private List<LocalVariableNode> _localVars;
+    private MethodNode _method;
 
     public LambdaMethodVisitor(int api, MethodVisitor mv) {
-      super(api, mv, _inferredOperationConsumer, Optional.empty());
+      super(api, mv, -1, _inferredOperationConsumer, CallSiteResolver.NONE, LambdaClassVisitor.this._loader);
     }
 
     @Override
@@ -74,58 +90,53 @@ class LambdaClassVisitor extends ClassVisitor {
       switch (_state) {
         case METHOD_REF:
           if (_opcode == Opcodes.INVOKESTATIC) {
-            _lambdaName = lambdaLHS(_methodDesc) + " -> " + Util.extractSimpleName(_owner, "/")  + "." + methodInvName();
+            _lambdaName = lambdaLHS() + " -> " + Util.extractSimpleName(_owner, "/")  + "." + methodInvName();
           } else if (_opcode == Opcodes.INVOKEVIRTUAL) {
             String methodInvName = methodInvName();
-            //TODO lhs static vs dynamic - parameters
-            //find owners depending on number of parameters
-
-            _lambdaName = lambdaLHS(_desc) + " -> " +
-                MethodInvOwnerFinder.findOwner(_instructions, _localVars,
-                    Type.getMethodType(_desc).getArgumentTypes().length + 1)
+            //invocation on this is written without receiver
+            _lambdaName = lambdaLHS() + " -> " +
+                MethodInvOwnerFinder.findOwner(_method)
+                  .filter(owner -> !owner.equals("this"))
                   .map(owner -> owner + "." + methodInvName)
                   .orElse(methodInvName);
           } else {
             //TODO
-            _lambdaName = lambdaLHS(_methodDesc) + " -> {...}";
+            _lambdaName = lambdaLHS() + " -> {...}";
           }
           break;
         default:
           //TODO
-          _lambdaName = lambdaLHS(_methodDesc) + " -> {...}";
+          _lambdaName = lambdaLHS() + " -> {...}";
           break;
       }
       super.visitEnd();
     }
 
     private String methodInvName() {
-      Type methodType = Type.getMethodType(_desc);
-      int argSize = methodType.getArgumentTypes().length;
-      StringJoiner sj = new StringJoiner(",", "(", ")");
-      for (int i = 0; i < argSize; i++) {
-        sj.add("_");
-      }
-      return _name + sj.toString();
+      return _name + InsnScanner.placeholders(Type.getArgumentTypes(_desc).length);
     }
 
-    private String lambdaLHS(String desc) {
-      int numOfParameters = Type.getArgumentTypes(desc).length;
-      if (numOfParameters == 1) {
-        return _localVariables.get(0);
-      } else {
-        StringJoiner sj = new StringJoiner(", ", "(", ")");
-        for (int i = 0; i < numOfParameters; i++) {
-          sj.add(_localVariables.get(i));
+    /**
+     * Parameters of the lambda are the last parameters of the implementation method,
+     * values captured by the lambda come first.
+     */
+    private String lambdaLHS() {
+      Type[] parameters = Type.getArgumentTypes(_methodDesc);
+      int first = _lambdaArity < 0 || _lambdaArity > parameters.length ? 0 : parameters.length - _lambdaArity;
+      int slot = (_method.access & Opcodes.ACC_STATIC) == 0 ? 1 : 0;
+      StringJoiner sj = new StringJoiner(", ", "(", ")");
+      for (int i = 0; i < parameters.length; i++) {
+        if (i >= first) {
+          sj.add(InsnScanner.variableName(_method, slot, InsnScanner.NOT_FOUND).orElse("_"));
         }
-        return sj.toString();
+        slot += parameters[i].getSize();
       }
+      return parameters.length - first == 1 ? sj.toString().substring(1, sj.length() - 1) : sj.toString();
     }
 
     @Override
     public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index) {
-      if (!name.equals("this")) {
-        _localVariables.add(name);
-      }
+      //names are read from the method node, local variables do not change the state
     }
 
   }
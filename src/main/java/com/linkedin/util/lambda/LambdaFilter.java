@@ -0,0 +1,113 @@
+package com.linkedin.util.lambda;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides which lambdas are analyzed by prefix of the name of the class in which they are created and by
+ * functional interface they implement. Decision is made before any method body is parsed: lambda classes
+ * by their class file header, call sites of rewritten bootstraps by invokedynamic descriptor.
+ */
+class LambdaFilter {
+
+  static final String INCLUDE = "include";
+  static final String EXCLUDE = "exclude";
+  static final String INTERFACES = "interfaces";
+
+  /**
+   * Separates values of an option, agent options themselves are separated by commas.
+   */
+  static final String SEPARATOR = ";";
+
+  private static final String LAMBDA_NAME_INFIX = "$$Lambda$";
+
+  private final PrefixTrie _include;
+  private final PrefixTrie _exclude;
+  private final Set<String> _interfaces;
+
+  /**
+   * @param include prefixes of classes whose lambdas are analyzed, all classes if empty
+   * @param exclude prefixes of classes whose lambdas are not analyzed, takes precedence over include
+   * @param interfaces internal names of functional interfaces, lambdas implementing other interfaces
+   * are not analyzed, all interfaces if empty
+   */
+  LambdaFilter(PrefixTrie include, PrefixTrie exclude, Set<String> interfaces) {
+    _include = include;
+    _exclude = exclude;
+    _interfaces = interfaces;
+  }
+
+  static LambdaFilter acceptAll() {
+    return new LambdaFilter(new PrefixTrie(), new PrefixTrie(), Collections.emptySet());
+  }
+
+  static LambdaFilter fromOptions(AgentOptions options) {
+    return fromOptions(options, INCLUDE, EXCLUDE, INTERFACES);
+  }
+
+  /**
+   * Reads a filter from options with given keys, e.g. when a feature selects lambdas on its own.
+   */
+  static LambdaFilter fromOptions(AgentOptions options, String includeKey, String excludeKey, String interfacesKey) {
+    PrefixTrie include = new PrefixTrie();
+    PrefixTrie exclude = new PrefixTrie();
+    Set<String> interfaces = new HashSet<>();
+    options.getString(includeKey).ifPresent(value -> split(value).forEach(include::add));
+    options.getString(excludeKey).ifPresent(value -> split(value).forEach(exclude::add));
+    options.getString(interfacesKey).ifPresent(value -> split(value).forEach(i -> interfaces.add(i.replace('.', '/'))));
+    return new LambdaFilter(include, exclude, interfaces);
+  }
+
+  private static Set<String> split(String value) {
+    Set<String> values = new HashSet<>();
+    for (String v : value.split(SEPARATOR)) {
+      if (!v.trim().isEmpty()) {
+        values.add(v.trim());
+      }
+    }
+    return values;
+  }
+
+  boolean isAcceptAll() {
+    return _include.isEmpty() && _exclude.isEmpty() && _interfaces.isEmpty();
+  }
+
+  /**
+   * @param hostClass name of the class in which lambdas are created, either binary or internal
+   */
+  boolean acceptsHost(String hostClass) {
+    return acceptsHost(hostClass, hostClass.length());
+  }
+
+  private boolean acceptsHost(String name, int end) {
+    return (_include.isEmpty() || _include.matches(name, 0, end)) && !_exclude.matches(name, 0, end);
+  }
+
+  /**
+   * @param internalName internal name of a functional interface
+   */
+  boolean acceptsInterface(String internalName) {
+    return _interfaces.isEmpty() || _interfaces.contains(internalName);
+  }
+
+  /**
+   * @param className internal name of a lambda class, read from its class file header
+   * @param interfaces interfaces implemented by the lambda class, read from its class file header
+   */
+  boolean acceptsLambdaClass(String className, String[] interfaces) {
+    int infix = className.lastIndexOf(LAMBDA_NAME_INFIX);
+    if (!acceptsHost(className, infix >= 0 ? infix : className.length())) {
+      return false;
+    }
+    if (_interfaces.isEmpty()) {
+      return true;
+    }
+    for (String i : interfaces) {
+      if (_interfaces.contains(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
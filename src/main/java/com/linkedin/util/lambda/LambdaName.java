@@ -5,10 +5,10 @@ import java.util.Optional;
 class LambdaName {
 
   private final String _inferredOperation;
-  private final String _sourcePointer;
+  private final SourcePointer _sourcePointer;
   private final String _className;
 
-  public LambdaName(String className, String inferredOperation, String sourcePointer) {
+  public LambdaName(String className, String inferredOperation, SourcePointer sourcePointer) {
     _className = className;
     _inferredOperation = inferredOperation;
     _sourcePointer = sourcePointer;
@@ -32,6 +32,46 @@ class LambdaName {
     }
   }
 
+  /**
+   * Splits a formatted name, e.g. a precomputed or cached one, back into operation and source pointer, so that
+   * its parts are interned as symbols shared with other names. Name that does not end with a source pointer
+   * is kept whole as the operation.
+   */
+  static LambdaName parse(String className, String name) {
+    int open = name.lastIndexOf('(');
+    if (open > 0 && name.endsWith(")")) {
+      int methodStart = name.lastIndexOf(' ', open) + 1;
+      String location = name.substring(open + 1, name.length() - 1);
+      int line = 0;
+      int colon = location.lastIndexOf(':');
+      if (colon > 0) {
+        try {
+          line = Integer.parseInt(location.substring(colon + 1));
+          location = location.substring(0, colon);
+        } catch (NumberFormatException e) {
+          line = -1;
+        }
+      }
+      if (methodStart < open && !location.isEmpty()) {
+        LambdaName parsed = new LambdaName(className, methodStart > 1 ? name.substring(0, methodStart - 1) : null,
+            new SourcePointer(location, name.substring(methodStart, open), line));
+        //parts that would not be formatted back into the same name, e.g. a line number 0, are not split
+        if (name.equals(parsed.getName().orElse(null))) {
+          return parsed;
+        }
+      }
+    }
+    return new LambdaName(className, name, null);
+  }
+
+  String getInferredOperation() {
+    return _inferredOperation;
+  }
+
+  SourcePointer getSourcePointer() {
+    return _sourcePointer;
+  }
+
   public String getClassName() {
     return _className;
   }
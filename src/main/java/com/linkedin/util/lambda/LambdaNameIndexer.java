@@ -0,0 +1,81 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Computes names of lambdas from compiled classes, without loading them, and writes them to an index
+ * that is read at runtime from {@code META-INF/lambda-names} resources. Lambdas covered by the index
+ * are named without analyzing byte code when their classes are loaded.
+ * <p>
+ * Index is a UTF-8 text file with one lambda per line: class in which lambda is created, implementation
+ * method of the lambda and its name. Lambdas that can't be told apart by implementation method
+ * are left out of the index and named at runtime.
+ * <p>
+ * Classes can be added concurrently.
+ */
+public class LambdaNameIndexer {
+
+  private final SortedMap<String, String> _names = new TreeMap<>();
+
+  /**
+   * Adds lambdas created in a class.
+   * @return number of lambdas added to the index
+   */
+  public int addClass(byte[] byteCode) {
+    if (!ConstantPool.referencesLambdaMetafactory(byteCode)) {
+      return 0;
+    }
+    return addClass(new ClassReader(byteCode));
+  }
+
+  public int addClass(InputStream is) throws IOException {
+    return addClass(new ClassReader(is));
+  }
+
+  private int addClass(ClassReader reader) {
+    CallSiteNamer.ClassNames names = CallSiteNamer.nameAll(reader, false);
+    synchronized (this) {
+      _names.putAll(names.getNames());
+      for (String key : names.getAmbiguous()) {
+        _names.remove(key);
+      }
+    }
+    return names.getNames().size();
+  }
+
+  public synchronized int size() {
+    return _names.size();
+  }
+
+  /**
+   * Writes index sorted by key so that builds are reproducible.
+   */
+  public synchronized void write(OutputStream os) throws IOException {
+    Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+    for (Map.Entry<String, String> entry : _names.entrySet()) {
+      writer.write(entry.getKey());
+      writer.write('\t');
+      writer.write(entry.getValue());
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes index in the binary format that is memory mapped at runtime, see {@code precomputedIndex}
+   * option of {@link LambdaNames#initialize(String)}.
+   */
+  public synchronized void writeBinary(OutputStream os) throws IOException {
+    MappedNameIndex.write(_names, os);
+  }
+}
@@ -1,35 +1,334 @@
 package com.linkedin.util.lambda;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandleInfo;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import com.ea.agentloader.AgentLoader;
 
 public class LambdaNames {
 
-  private static ConcurrentMap<String, String> _names = new ConcurrentHashMap<>();
+  private static volatile NameRegistry _registry = new NameRegistry(0);
+  private static volatile NameCache _nameCache;
+  private static volatile boolean _eager = true;
 
   private LambdaNames() {
   }
 
+  /**
+   * Final result of the lookup is cached on the lambda class, both when it has a name and when it does not,
+   * unless number of names is capped.
+   */
+  private static final ClassValue<Optional<String>> _byClass = new ClassValue<Optional<String>>() {
+    @Override
+    protected Optional<String> computeValue(Class<?> type) {
+      return lookup(type);
+    }
+  };
+
+  /**
+   * Returns name of a lambda. If lambda is still waiting for a background worker
+   * to analyze it then empty name is returned.
+   * Once lambda is analyzed its name is cached on its class, repeated calls do not allocate.
+   */
   public static Optional<String> getLambdaName(Object lambda) {
-    String lambdaClassName = lambda.getClass().getName();
+    Class<?> type = lambda.getClass();
+    if (_registry.isBounded()) {
+      //strings cached on classes would not be evicted with names
+      Optional<String> name = lookup(type);
+      return name != null ? name : Optional.empty();
+    }
+    Optional<String> name = _byClass.get(type);
+    if (name == null) {
+      //lambda is waiting for a background worker, it can't be cached yet
+      _byClass.remove(type);
+      return Optional.empty();
+    }
+    return name;
+  }
+
+  /**
+   * Same as {@link #getLambdaName(Object)} but returns {@code null} if lambda does not have a name.
+   */
+  public static String getLambdaNameOrNull(Object lambda) {
+    return getLambdaName(lambda).orElse(null);
+  }
+
+  /**
+   * Looks lambda up by its class name, without caching the result on the class.
+   */
+  static Optional<String> getLambdaNameUncached(Object lambda) {
+    Optional<String> name = lookup(lambda.getClass());
+    return name != null ? name : Optional.empty();
+  }
+
+  /**
+   * @return name or {@code null} if the lambda is waiting for a background worker
+   */
+  private static Optional<String> lookup(Class<?> type) {
+    LinkedLambda linked = _registry.getLinked(type.getClassLoader(), type.getName());
+    if (linked != null) {
+      return linked.resolve().map(LambdaNames::format);
+    }
+    String name = registryKey(type);
+    return name != null ? lookup(type.getClassLoader(), name) : Optional.empty();
+  }
+
+  /**
+   * @param className name of the lambda class it was loaded with
+   * @return name or {@code null} if the lambda is waiting for a background worker
+   */
+  private static Optional<String> lookup(ClassLoader loader, String className) {
+    NameRegistry registry = _registry;
+    CompactName lambdaName = registry.get(loader, className);
+    if (lambdaName == null) {
+      PendingLambda pending = registry.getPending(loader, className);
+      if (pending == null) {
+        return Optional.empty();
+      } else if (pending.isQueued()) {
+        return pending.getIfResolved();
+      } else {
+        return resolved(pending, pending.resolve());
+      }
+    }
+    return Optional.of(format(lambdaName));
+  }
+
+  /**
+   * Looks lambda up by the name its class was loaded with, e.g. when the class itself is not at hand.
+   */
+  static Optional<String> getLambdaName(ClassLoader loader, String className) {
+    Optional<String> name = lookup(loader, className);
+    return name != null ? name : Optional.empty();
+  }
+
+  /**
+   * Writes names of lambdas known to this JVM, one {@code class name '\t' name} per line, to be read by
+   * {@link LambdaSymbolizer}. Class names are the ones of {@link #exportedClassName(String)}.
+   * Lambdas waiting to be analyzed on demand are analyzed first.
+   */
+  public static void exportNames(OutputStream os) throws IOException {
+    Map<String, String> names = new TreeMap<>();
+    NameRegistry registry = _registry;
+    for (PendingLambda pending : registry.getPending()) {
+      if (!pending.isQueued()) {
+        resolved(pending, pending.resolve());
+      }
+    }
+    registry.getNames().forEach((className, name) -> names.put(className, format(name)));
+    registry.getLinked().forEach((className, lambda) -> lambda.resolve().ifPresent(
+        name -> names.put(exportedClassName(className), format(name))));
+    Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+    for (Map.Entry<String, String> entry : names.entrySet()) {
+      writer.write(entry.getKey());
+      writer.write('\t');
+      writer.write(entry.getValue());
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /**
+   * Returns invocations of lambdas rewritten by {@link LambdaProfiler} when the {@code profile} option is enabled,
+   * by lambda name, lambdas that spent the most time first. Each lambda has number of {@code calls},
+   * {@code estimatedNanos} spent in them and a histogram of sampled invocation times in nanoseconds.
+   */
+  public static Map<String, Map<String, Long>> getProfile() {
+    return LambdaProfiler.report();
+  }
+
+  /**
+   * Returns name of a lambda waiting up to given time if lambda is still waiting for
+   * a background worker to analyze it.
+   */
+  public static Optional<String> getLambdaName(Object lambda, long timeout, TimeUnit unit) {
+    String name = registryKey(lambda.getClass());
+    if (name != null) {
+      PendingLambda pending = _registry.getPending(lambda.getClass().getClassLoader(), name);
+      if (pending != null && pending.isQueued()) {
+        try {
+          Optional<String> lambdaName = pending.await(timeout, unit);
+          if (lambdaName != null) {
+            return lambdaName;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    return getLambdaName(lambda);
+  }
+
+  private static String registryKey(Class<?> type) {
+    String lambdaClassName = type.getName();
     int slashIndex = lambdaClassName.lastIndexOf('/');
     if (slashIndex > 0) {
-      String name = lambdaClassName.substring(0, slashIndex);
-      return Optional.ofNullable(_names.get(name));
+      return lambdaClassName.substring(0, slashIndex);
     } else {
-      return Optional.empty();
+      return null;
     }
   }
 
-  static void add(String lambdaClassName, String name) {
-    _names.put(lambdaClassName, name);
+  /**
+   * Runtime names of hidden lambda classes end with their address, e.g. {@code Foo$$Lambda/0x0000000800c0b440},
+   * which is the only part that tells lambdas of one class apart on JDK 21 and later, so it is kept. Runtime names
+   * of VM anonymous lambda classes on JDK 8 end with a number that is dropped, they are told apart by their index.
+   * @return name by which lambda class is exported
+   */
+  static String exportedClassName(String runtimeName) {
+    int slashIndex = runtimeName.lastIndexOf('/');
+    return slashIndex > 0 && !runtimeName.startsWith("0x", slashIndex + 1) ? runtimeName.substring(0, slashIndex)
+        : runtimeName;
+  }
+
+  private static String format(CompactName name) {
+    NameCache nameCache = _nameCache;
+    return nameCache != null ? nameCache.get(name) : name.format();
+  }
+
+  static Optional<String> resolved(PendingLambda pending, Optional<String> name) {
+    ClassLoader loader = pending.getLoader();
+    if (loader != null) {
+      if (name.isPresent()) {
+        add(loader, pending.getLambdaName());
+      }
+      _registry.removePending(loader, pending);
+    }
+    return name;
+  }
+
+  static void add(ClassLoader loader, LambdaName lambdaName) {
+    NameRegistry registry = _registry;
+    CompactName.of(lambdaName, registry.symbols(loader))
+        .ifPresent(name -> registry.put(loader, lambdaName.getClassName(), name));
+    NameMapExporter exporter = NameMapExporter.getInstance();
+    if (exporter != null) {
+      lambdaName.getName().ifPresent(name -> exporter.exported(loader, lambdaName.getClassName(), name));
+    }
+  }
+
+  /**
+   * Registers lambda class linked through {@link LambdaBootstraps}.
+   */
+  static void linked(Class<?> lambdaClass, String hostClass, ClassLoader loader, String method, int site,
+      MethodHandleInfo implMethod) {
+    AgentMetrics.getInstance().lambdaClass();
+    NameRegistry registry = _registry;
+    LinkedLambda linked = new LinkedLambda(lambdaClass.getName(), hostClass, loader, method, site, implMethod,
+        registry.symbols(loader));
+    if (_eager) {
+      linked.resolve();
+    }
+    registry.putLinked(loader, lambdaClass.getName(), linked);
+  }
+
+  /**
+   * @return number of names kept in memory, including names of linked lambdas that were not requested yet
+   */
+  static int size() {
+    return _registry.size();
+  }
+
+  static void configure(AgentOptions options) {
+    _registry = NameRegistry.fromOptions(options);
+    _nameCache = NameCache.fromOptions(options);
+    _eager = AnalysisMode.fromOptions(options) == AnalysisMode.EAGER;
+  }
+
+  static void addPending(PendingLambda pending) {
+    ClassLoader loader = pending.getLoader();
+    if (loader != null) {
+      _registry.putPending(loader, pending);
+    }
   }
 
   public static void initialize() {
-    AgentLoader.loadAgentClass(LambdaNamesAgent.class.getName(), null);
+    initialize((String) null);
+  }
+
+  /**
+   * Loads the agent with options built by {@link LambdaNamesOptions}.
+   */
+  public static void initialize(LambdaNamesOptions options) {
+    initialize(options.toString());
+  }
+
+  /**
+   * Loads the agent with given options, a comma separated list of key=value pairs.
+   * Supported options:
+   * <ul>
+   * <li>{@code mode} - {@code eager} (default) analyzes lambda classes when they are loaded,
+   * {@code lazy} analyzes lambda class when its name is requested for the first time,
+   * {@code async} analyzes lambda classes on background threads</li>
+   * <li>{@code rewriteBootstraps} - if {@code true} lambda call sites are linked through {@link LambdaBootstraps}
+   * which identify lambda classes, default is {@code true} on JDK 15 and later where lambda classes are hidden
+   * classes that can't be analyzed when they are loaded</li>
+   * <li>{@code retransformLoaded} - if {@code true} classes loaded before the agent are rewritten as well when
+   * {@code rewriteBootstraps} is enabled, default {@code false}</li>
+   * <li>{@code workers} - number of background threads used in async mode, default 1</li>
+   * <li>{@code queueSize} - number of lambda classes waiting for background threads in async mode, default 10000</li>
+   * <li>{@code overflow} - what happens to a lambda class when the async mode queue is full: {@code lazy} (default)
+   * analyzes it when its name is requested, {@code inline} analyzes it on the loading thread, {@code block} waits for
+   * space in the queue, {@code discard} gives up naming it</li>
+   * <li>{@code precomputedNames} - if {@code true} (default) names found in {@code META-INF/lambda-names}
+   * resources, generated at build time by {@link LambdaNameIndexer}, are used instead of analyzing lambda classes</li>
+   * <li>{@code precomputedIndex} - binary index written by {@link LambdaNameIndexer#writeBinary(java.io.OutputStream)},
+   * memory mapped and searched before {@code META-INF/lambda-names} resources</li>
+   * <li>{@code warmUp} - if {@code true} lambdas of all classes on the class path are named by background threads
+   * right after the agent is loaded, default {@code false}</li>
+   * <li>{@code warmUpThreads} - number of threads scanning the class path, default half of available processors</li>
+   * <li>{@code warmUpCpuPercent} - percentage of time each warm up thread may spend scanning, default 50</li>
+   * <li>{@code nameCacheDir} - directory in which names are cached across restarts, see {@link PersistentNameCache},
+   * it may be shared by JVMs running the same application</li>
+   * <li>{@code nameCacheMaxBytes} - maximum size of the name cache after it is compacted, default 16MB</li>
+   * <li>{@code profile} - if {@code true} functional interface methods of lambda classes are rewritten to count
+   * invocations and time a sample of them, see {@link #getProfile()}, default {@code false}; lambda classes
+   * linked through {@link LambdaBootstraps} are hidden classes that can't be rewritten</li>
+   * <li>{@code profileSampleRate} - one in how many invocations of a profiled lambda is timed, default 16</li>
+   * <li>{@code profileInclude}, {@code profileExclude}, {@code profileInterfaces} - select profiled lambdas
+   * the same way {@code include}, {@code exclude} and {@code interfaces} select analyzed lambdas</li>
+   * <li>{@code nameMap} - file to which names of lambda classes are appended by a background thread, see
+   * {@link NameMapExporter}, {@code %p} is replaced by process id, e.g. {@code nameMap=/tmp/lambda-names-%p.map}</li>
+   * <li>{@code nameMapFlushMillis} - how often names are appended to the name map, default 1000</li>
+   * <li>{@code nameMapQueueSize} - number of names waiting to be appended to the name map, names are dropped
+   * when exceeded, default 65536</li>
+   * <li>{@code include} - prefixes of names of classes whose lambdas are analyzed, separated by {@code ;},
+   * e.g. {@code include=com.linkedin.;com.example.}, default all classes</li>
+   * <li>{@code exclude} - prefixes of names of classes whose lambdas are not analyzed, separated by {@code ;},
+   * takes precedence over {@code include}</li>
+   * <li>{@code interfaces} - functional interfaces, separated by {@code ;}, lambdas implementing other interfaces
+   * are not analyzed, default all interfaces</li>
+   * <li>{@code maxNames} - maximum number of lambda names and linked lambdas kept in memory, least recently used
+   * ones are evicted first, default 0 (unlimited); when capped, formatted names are not cached on lambda classes,
+   * see {@code nameCacheSize}; names are released anyway when class loader that defined lambdas is collected</li>
+   * <li>{@code nameCacheSize} - number of formatted names kept in memory, names are stored as interned parts
+   * and formatted when requested, default 0</li>
+   * <li>{@code ownerCacheSize} - number of parsed classes that own lambdas kept in memory, default 256</li>
+   * <li>{@code callSiteIndex} - if {@code true} (default) call site of a lambda is found by its implementation method
+   * in an index of lambda call sites of the class in which lambda was created, instead of capturing the stack</li>
+   * <li>{@code stackFallback} - if {@code true} stack is captured when lambda is created, to be used
+   * when its call site can't be found in the index, default {@code true} in {@code eager} mode and {@code false}
+   * in {@code lazy} and {@code async} modes, which would capture the stack of every lambda while it is loaded</li>
+   * <li>{@code captureOwners} - if {@code true} byte code of classes that contain lambdas is kept in memory
+   * when they are loaded so that it does not have to be read again from the class path, default false</li>
+   * <li>{@code captureOwnersMaxBytes} - maximum amount of captured byte code, default 64MB</li>
+   * <li>{@code jmx} - if {@code true} (default) overhead of the agent is exposed by {@link LambdaNamesMXBean}</li>
+   * <li>{@code trace} - file to which byte code of analyzed lambda classes is written by a background thread</li>
+   * <li>{@code traceMaxFileSize} - size in bytes after which trace file is rotated, default 10MB</li>
+   * <li>{@code traceMaxFiles} - number of rotated trace files to keep, default 5</li>
+   * <li>{@code traceQueueSize} - number of classes waiting to be traced, classes are dropped when exceeded, default 1024</li>
+   * </ul>
+   */
+  public static void initialize(String options) {
+    AgentLoader.loadAgentClass(LambdaNamesAgent.class.getName(), options);
   }
 
 }
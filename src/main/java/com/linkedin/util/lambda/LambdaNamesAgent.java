@@ -1,15 +1,17 @@
 package com.linkedin.util.lambda;
 
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.util.TraceClassVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,32 +20,178 @@ class LambdaNamesAgent {
   private static final Logger LOGGER = LoggerFactory.getLogger(LambdaNamesAgent.class);
   private static final AtomicBoolean _initialized = new AtomicBoolean(false);
 
+  static final String RETRANSFORM_LOADED = "retransformLoaded";
+
   public static void agentmain(String agentArgs, Instrumentation instrumentation) {
     if (_initialized.compareAndSet(false, true)) {
       LOGGER.info("Loading " + LambdaNamesAgent.class.getName());
-      instrumentation.addTransformer(new Analyzer());
+      AgentOptions options = AgentOptions.parse(agentArgs);
+      OwnerClassCache.configure(options);
+      OwnerBytesStore.configure(options);
+      CallSiteIndex.configure(options);
+      PrecomputedNames.configure(options);
+      PersistentNameCache.configure(options);
+      NameMapExporter.configure(options);
+      LambdaNames.configure(options);
+      AgentMetrics.configure(options);
+      LambdaProfiler.configure(options);
+      BytecodeTracer tracer = BytecodeTracer.fromOptions(options);
+      if (tracer != null) {
+        tracer.start();
+      }
+      AnalysisMode mode = AnalysisMode.fromOptions(options);
+      AsyncNamingPipeline pipeline = mode == AnalysisMode.ASYNC ? AsyncNamingPipeline.fromOptions(options) : null;
+      LambdaFilter filter = LambdaFilter.fromOptions(options);
+      ClasspathWarmUp warmUp = ClasspathWarmUp.fromOptions(options, filter);
+      if (warmUp != null) {
+        warmUp.start();
+      }
+      BootstrapRewriter rewriter = options.getBoolean(BootstrapRewriter.REWRITE_BOOTSTRAPS,
+          BootstrapRewriter.hasHiddenClasses()) ? new BootstrapRewriter(filter) : null;
+      instrumentation.addTransformer(new Analyzer(mode, pipeline, tracer, OwnerBytesStore.getInstance(), rewriter,
+          filter), rewriter != null);
+      if (rewriter != null && options.getBoolean(RETRANSFORM_LOADED, false)
+          && instrumentation.isRetransformClassesSupported()) {
+        retransformLoaded(instrumentation, filter);
+      }
+    }
+  }
+
+  /**
+   * Rewrites lambda call sites of classes loaded before the agent. Call sites that were already linked
+   * keep their lambda classes, lambdas linked from now on are named. Only classes whose class file references
+   * LambdaMetafactory are retransformed, all at once, classes whose class file can't be read are skipped.
+   */
+  private static void retransformLoaded(Instrumentation instrumentation, LambdaFilter filter) {
+    List<Class<?>> candidates = new ArrayList<>();
+    for (Class<?> type : instrumentation.getAllLoadedClasses()) {
+      ClassLoader loader = type.getClassLoader();
+      if (loader != null && !type.isArray() && filter.acceptsHost(type.getName().replace('.', '/'))
+          && !BootstrapRewriter.isAgentClass(type.getName(), type.getProtectionDomain())
+          && instrumentation.isModifiableClass(type) && hasLambdaCallSites(loader, type)) {
+        candidates.add(type);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return;
+    }
+    try {
+      instrumentation.retransformClasses(candidates.toArray(new Class<?>[0]));
+      LOGGER.info("Retransformed " + candidates.size() + " loaded classes");
+    } catch (Throwable e) {
+      //e.g. one of the classes can't be retransformed, others are still worth rewriting
+      LOGGER.debug("Failed retransforming loaded classes at once, retransforming them one by one", e);
+      int retransformed = 0;
+      for (Class<?> type : candidates) {
+        try {
+          instrumentation.retransformClasses(type);
+          retransformed++;
+        } catch (Throwable t) {
+          LOGGER.debug("Failed rewriting lambda call sites of " + type.getName(), t);
+        }
+      }
+      LOGGER.info("Retransformed " + retransformed + " loaded classes");
+    }
+  }
+
+  private static boolean hasLambdaCallSites(ClassLoader loader, Class<?> type) {
+    try (InputStream is = loader.getResourceAsStream(type.getName().replace('.', '/') + ".class")) {
+      return is != null && ConstantPool.referencesLambdaMetafactory(Util.readFully(is));
+    } catch (IOException | RuntimeException e) {
+      return false;
     }
   }
 
   private static class Analyzer implements ClassFileTransformer {
 
+    private final AnalysisMode _mode;
+    private final AsyncNamingPipeline _pipeline;
+    private final BytecodeTracer _tracer;
+    private final OwnerBytesStore _ownerBytesStore;
+    private final BootstrapRewriter _rewriter;
+    private final LambdaFilter _filter;
+
+    private Analyzer(AnalysisMode mode, AsyncNamingPipeline pipeline, BytecodeTracer tracer,
+        OwnerBytesStore ownerBytesStore, BootstrapRewriter rewriter, LambdaFilter filter) {
+      _mode = mode;
+      _pipeline = pipeline;
+      _tracer = tracer;
+      _ownerBytesStore = ownerBytesStore;
+      _rewriter = rewriter;
+      _filter = filter;
+    }
+
     @Override
     public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
         ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+      AgentMetrics.getInstance().classSeen();
       if (className == null && loader != null) {
         //TODO verify this logic in various settings
-        analyze(classfileBuffer);
+        if (_rewriter == null) {
+          try {
+            analyze(classfileBuffer, loader);
+          } catch (RuntimeException e) {
+            //exception thrown by a transformer is ignored by the JVM anyway
+            AgentMetrics.getInstance().analysisFailure();
+          }
+          if (LambdaProfiler.isEnabled()) {
+            try {
+              return LambdaProfiler.instrument(classfileBuffer, loader);
+            } catch (RuntimeException e) {
+              //lambda class is loaded as it is
+              AgentMetrics.getInstance().analysisFailure();
+            }
+          }
+        }
+      } else {
+        if (_ownerBytesStore != null && loader != null && classBeingRedefined == null
+            && _filter.acceptsHost(className)) {
+          _ownerBytesStore.offer(loader, className, classfileBuffer);
+        }
+        PersistentNameCache nameCache = PersistentNameCache.getInstance();
+        if (nameCache != null && loader != null && _filter.acceptsHost(className)) {
+          //class file is hashed while its bytes are at hand, naming a lambda never reads it again
+          nameCache.ownerLoaded(loader, className, classfileBuffer);
+        }
+        if (_rewriter != null) {
+          return _rewriter.rewrite(loader, className, protectionDomain, classfileBuffer);
+        }
       }
-      return classfileBuffer;
+      //class is not modified, returning null avoids copying the buffer
+      return null;
     }
 
-    private void analyze(byte[] byteCode) {
+    private void analyze(byte[] byteCode, ClassLoader loader) {
+      AgentMetrics.getInstance().lambdaClass();
       ClassReader reader = new ClassReader(byteCode);
-      NameGenClassVisitor cv = new NameGenClassVisitor(Opcodes.ASM5);
-      reader.accept(new TraceClassVisitor(cv, new PrintWriter(System.out)), 0);
-//      reader.accept(cv, 0);
-      LambdaName lambdaName = cv.getLambdaName();
-      lambdaName.getName().ifPresent(name -> LambdaNames.add(lambdaName.getClassName(), name));
+      //class name and interfaces are read from the header, method bodies of rejected classes are never parsed
+      if (!_filter.isAcceptAll() && !_filter.acceptsLambdaClass(reader.getClassName(), reader.getInterfaces())) {
+        AgentMetrics.getInstance().filtered();
+        return;
+      }
+      if (_tracer != null) {
+        _tracer.trace(byteCode);
+      }
+      switch (_mode) {
+        case LAZY:
+        case ASYNC:
+          //reading class name does not parse the class, source pointer has to be captured while on the loading stack,
+          //stack fallback is off by default in these modes so that loading a lambda does not walk the stack
+          String className = reader.getClassName();
+          if (NameGenClassVisitor.isALambdaClassByName(className)) {
+            Optional<SourcePointer> sourcePointer = CallSiteIndex.isStackFallback() ? SourcePointer.get()
+                : Optional.empty();
+            PendingLambda pending = new PendingLambda(className.replace('/', '.'), byteCode, sourcePointer, loader);
+            LambdaNames.addPending(pending);
+            if (_pipeline != null) {
+              _pipeline.submit(pending);
+            }
+          }
+          break;
+        default:
+          LambdaNames.add(loader, NameGenClassVisitor.analyze(reader, loader));
+          break;
+      }
     }
   }
 
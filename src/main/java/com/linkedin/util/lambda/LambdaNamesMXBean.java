@@ -0,0 +1,76 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Overhead of the agent, registered as {@code com.linkedin.util.lambda:type=LambdaNames}.
+ * Times are in nanoseconds, histograms contain count, mean, p50, p90, p99 and max.
+ * Names of lambdas can be exported for offline use by {@link #exportNames(String)}.
+ */
+public interface LambdaNamesMXBean {
+
+  /**
+   * @return number of classes passed to the agent's class file transformer
+   */
+  long getClassesSeen();
+
+  /**
+   * @return number of lambda classes defined or linked since the agent was loaded
+   */
+  long getLambdaClasses();
+
+  /**
+   * @return number of lambda classes and call sites rejected by include/exclude filters
+   */
+  long getFilteredLambdas();
+
+  long getNamesProduced();
+
+  /**
+   * @return number of analyzed lambdas whose operation could not be inferred, they are named
+   * after their call site only
+   */
+  long getUnknownOperations();
+
+  /**
+   * @return number of times class that owns lambdas could not be read
+   */
+  long getOwnerReadFailures();
+
+  /**
+   * @return number of analyses that failed with an exception
+   */
+  long getAnalysisFailures();
+
+  /**
+   * @return number of lambda names kept in memory
+   */
+  int getRegistrySize();
+
+  long getOwnerCacheHits();
+
+  long getOwnerCacheMisses();
+
+  Map<String, Long> getStackCaptureNanos();
+
+  /**
+   * @return time of analyses of lambda classes, includes owner parse and finder scan
+   */
+  Map<String, Long> getAnalysisNanos();
+
+  Map<String, Long> getOwnerParseNanos();
+
+  Map<String, Long> getFinderScanNanos();
+
+  /**
+   * @return bytes allocated by the analyzing thread per analysis, empty when the JVM does not measure it
+   */
+  Map<String, Long> getAnalysisAllocatedBytes();
+
+  /**
+   * Writes names of lambdas to a file that {@link LambdaSymbolizer} reads, see
+   * {@link LambdaNames#exportNames(java.io.OutputStream)}.
+   */
+  void exportNames(String file) throws IOException;
+}
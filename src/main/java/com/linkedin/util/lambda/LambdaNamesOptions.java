@@ -0,0 +1,82 @@
+package com.linkedin.util.lambda;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Builds options of the agent passed to {@link LambdaNames#initialize(LambdaNamesOptions)}, e.g.
+ * <pre>
+ *   LambdaNames.initialize(new LambdaNamesOptions()
+ *       .include("com.linkedin.")
+ *       .exclude("com.linkedin.generated.")
+ *       .interfaces(Runnable.class, Callable.class));
+ * </pre>
+ * See {@link LambdaNames#initialize(String)} for supported options.
+ */
+public class LambdaNamesOptions {
+
+  private final Map<String, String> _options = new LinkedHashMap<>();
+
+  /**
+   * Analyzes only lambdas created in classes whose names start with one of given prefixes.
+   */
+  public LambdaNamesOptions include(String... prefixes) {
+    return append(LambdaFilter.INCLUDE, prefixes);
+  }
+
+  /**
+   * Does not analyze lambdas created in classes whose names start with one of given prefixes.
+   */
+  public LambdaNamesOptions exclude(String... prefixes) {
+    return append(LambdaFilter.EXCLUDE, prefixes);
+  }
+
+  /**
+   * Analyzes only lambdas implementing one of given functional interfaces.
+   */
+  public LambdaNamesOptions interfaces(Class<?>... interfaces) {
+    String[] names = new String[interfaces.length];
+    for (int i = 0; i < interfaces.length; i++) {
+      names[i] = interfaces[i].getName();
+    }
+    return append(LambdaFilter.INTERFACES, names);
+  }
+
+  /**
+   * Counts invocations of lambdas created in classes whose names start with one of given prefixes, or of all
+   * lambdas if none are given, see {@link LambdaNames#getProfile()}.
+   */
+  public LambdaNamesOptions profile(String... prefixes) {
+    set(LambdaProfiler.PROFILE, true);
+    return prefixes.length > 0 ? append(LambdaProfiler.PROFILE_INCLUDE, prefixes) : this;
+  }
+
+  /**
+   * Sets any other option.
+   */
+  public LambdaNamesOptions set(String key, Object value) {
+    _options.put(key, String.valueOf(value));
+    return this;
+  }
+
+  private LambdaNamesOptions append(String key, String[] values) {
+    StringJoiner joiner = new StringJoiner(LambdaFilter.SEPARATOR);
+    String current = _options.get(key);
+    if (current != null) {
+      joiner.add(current);
+    }
+    for (String value : values) {
+      joiner.add(value);
+    }
+    _options.put(key, joiner.toString());
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(",");
+    _options.forEach((key, value) -> joiner.add(key + "=" + value));
+    return joiner.toString();
+  }
+}
@@ -0,0 +1,319 @@
+package com.linkedin.util.lambda;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Counts invocations of lambdas and times a sample of them. Functional interface methods of lambda classes
+ * are rewritten when the classes are loaded to call {@link #enter(int)} and {@link #exit(int, long)}, which
+ * record into striped counters and a {@link Histogram} of the lambda class. Lambda names are looked up only
+ * when a report is requested. Not meant to be called directly.
+ * <p>
+ * Invocations that end with an exception are counted but not timed.
+ * <p>
+ * Probes are kept in fixed size chunks, registering a probe copies at most the array of chunks. Probes of lambdas
+ * whose class loader was collected are dropped and their indexes reused.
+ */
+public final class LambdaProfiler {
+
+  static final String PROFILE = "profile";
+  static final String PROFILE_SAMPLE_RATE = "profileSampleRate";
+  static final String PROFILE_INCLUDE = "profileInclude";
+  static final String PROFILE_EXCLUDE = "profileExclude";
+  static final String PROFILE_INTERFACES = "profileInterfaces";
+
+  private static final long NOT_SAMPLED = Long.MIN_VALUE;
+  private static final String INTERNAL_NAME = Type.getInternalName(LambdaProfiler.class);
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+  //rewritten classes refer to probes by index, chunks are never copied
+  private static volatile AtomicReferenceArray<Probe>[] _chunks = newChunks(0);
+  //guarded by the class lock
+  private static int _size;
+  private static final Deque<Integer> _free = new ArrayDeque<>();
+  private static final ReferenceQueue<ClassLoader> _collected = new ReferenceQueue<>();
+  private static volatile int _sampleRate = 16;
+  private static volatile LambdaFilter _filter;
+  private static final Map<ClassLoader, Boolean> _visible = new WeakHashMap<>();
+
+  private LambdaProfiler() {
+  }
+
+  static void configure(AgentOptions options) {
+    if (options.getBoolean(PROFILE, false)) {
+      int sampleRate = options.getInt(PROFILE_SAMPLE_RATE, 16);
+      if (sampleRate < 1) {
+        throw new IllegalArgumentException("Invalid value of agent option " + PROFILE_SAMPLE_RATE + ": " + sampleRate);
+      }
+      _sampleRate = sampleRate;
+      _filter = LambdaFilter.fromOptions(options, PROFILE_INCLUDE, PROFILE_EXCLUDE, PROFILE_INTERFACES);
+    }
+  }
+
+  static boolean isEnabled() {
+    return _filter != null;
+  }
+
+  /**
+   * @return counter of an invocation, it has to be passed to {@link #exit(int, long)}
+   */
+  public static long enter(int probe) {
+    probe(probe)._calls.increment();
+    int sampleRate = _sampleRate;
+    return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0 ? System.nanoTime() : NOT_SAMPLED;
+  }
+
+  public static void exit(int probe, long start) {
+    if (start != NOT_SAMPLED) {
+      probe(probe)._nanos.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Rewrites a lambda class while it is being loaded.
+   * @param loader class loader that defines the lambda class, it must see this class
+   * @return rewritten byte code or {@code null} if the lambda class is not profiled
+   */
+  static byte[] instrument(byte[] byteCode, ClassLoader loader) {
+    LambdaFilter filter = _filter;
+    ClassReader reader = new ClassReader(byteCode);
+    if (filter == null || !filter.acceptsLambdaClass(reader.getClassName(), reader.getInterfaces())
+        || !isVisible(loader)) {
+      return null;
+    }
+    ClassNode classNode = new ClassNode(Opcodes.ASM9);
+    reader.accept(classNode, 0);
+    int probe = -1;
+    for (MethodNode method : classNode.methods) {
+      if (isInterfaceMethod(method) && isStraightLine(method)) {
+        if (probe < 0) {
+          probe = register(classNode.name.replace('/', '.'), loader);
+        }
+        instrument(method, probe);
+      }
+    }
+    if (probe < 0) {
+      return null;
+    }
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classNode.accept(writer);
+    return writer.toByteArray();
+  }
+
+  /**
+   * Functional interface method and its bridges, other methods of lambda classes are constructors,
+   * factories and {@code writeReplace}.
+   */
+  private static boolean isInterfaceMethod(MethodNode method) {
+    return (method.access & Opcodes.ACC_PUBLIC) != 0 && (method.access & Opcodes.ACC_STATIC) == 0
+        && !"<init>".equals(method.name);
+  }
+
+  /**
+   * Methods of lambda classes only forward to implementation methods, methods with branches would
+   * need their stack map frames to be recomputed and are not rewritten.
+   */
+  private static boolean isStraightLine(MethodNode method) {
+    if (!method.tryCatchBlocks.isEmpty()) {
+      return false;
+    }
+    for (AbstractInsnNode insn : method.instructions) {
+      int type = insn.getType();
+      if (type == AbstractInsnNode.JUMP_INSN || type == AbstractInsnNode.TABLESWITCH_INSN
+          || type == AbstractInsnNode.LOOKUPSWITCH_INSN) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void instrument(MethodNode method, int probe) {
+    int start = method.maxLocals;
+    for (AbstractInsnNode insn : method.instructions.toArray()) {
+      if (InsnScanner.isReturn(insn.getOpcode())) {
+        InsnList exit = new InsnList();
+        exit.add(new LdcInsnNode(probe));
+        exit.add(new VarInsnNode(Opcodes.LLOAD, start));
+        exit.add(new MethodInsnNode(Opcodes.INVOKESTATIC, INTERNAL_NAME, "exit", "(IJ)V", false));
+        method.instructions.insertBefore(insn, exit);
+      }
+    }
+    InsnList enter = new InsnList();
+    enter.add(new LdcInsnNode(probe));
+    enter.add(new MethodInsnNode(Opcodes.INVOKESTATIC, INTERNAL_NAME, "enter", "(I)J", false));
+    enter.add(new VarInsnNode(Opcodes.LSTORE, start));
+    method.instructions.insert(enter);
+    method.maxLocals += 2;
+  }
+
+  /**
+   * Rewritten class that can't see this class would fail with {@link NoClassDefFoundError} when invoked,
+   * e.g. when it is defined by an isolated class loader.
+   */
+  private static boolean isVisible(ClassLoader loader) {
+    if (loader == null) {
+      return false;
+    }
+    Boolean visible;
+    synchronized (_visible) {
+      visible = _visible.get(loader);
+    }
+    if (visible == null) {
+      //loading happens outside of the lock, class loaders take their own locks
+      try {
+        visible = Class.forName(LambdaProfiler.class.getName(), false, loader) == LambdaProfiler.class;
+      } catch (ClassNotFoundException | LinkageError e) {
+        visible = false;
+      }
+      synchronized (_visible) {
+        _visible.put(loader, visible);
+      }
+    }
+    return visible;
+  }
+
+  private static Probe probe(int index) {
+    return _chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+  }
+
+  private static synchronized int register(String className, ClassLoader loader) {
+    releaseCollected();
+    int index = _free.isEmpty() ? _size++ : _free.pop();
+    AtomicReferenceArray<Probe>[] chunks = _chunks;
+    int chunk = index >>> CHUNK_BITS;
+    if (chunk == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunk + 1);
+      chunks[chunk] = new AtomicReferenceArray<>(CHUNK_MASK + 1);
+      _chunks = chunks;
+    }
+    chunks[chunk].set(index & CHUNK_MASK, new Probe(className, new LoaderReference(loader, index)));
+    return index;
+  }
+
+  /**
+   * Classes that refer to probes of a collected class loader were collected with it, their indexes are free.
+   */
+  private static synchronized void releaseCollected() {
+    Reference<? extends ClassLoader> collected;
+    while ((collected = _collected.poll()) != null) {
+      int index = ((LoaderReference) collected)._index;
+      _chunks[index >>> CHUNK_BITS].set(index & CHUNK_MASK, null);
+      _free.push(index);
+    }
+  }
+
+  /**
+   * @return number of probes of lambda classes whose class loader was not released
+   */
+  static synchronized int getProbes() {
+    releaseCollected();
+    return _size - _free.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static AtomicReferenceArray<Probe>[] newChunks(int length) {
+    return new AtomicReferenceArray[length];
+  }
+
+  /**
+   * Lambda classes with the same name, e.g. defined by different class loaders, are reported together.
+   * Lambdas whose class loader was collected are not reported.
+   */
+  static Map<String, Map<String, Long>> report() {
+    releaseCollected();
+    Map<String, Probe> byName = new HashMap<>();
+    List<Probe> probes = new ArrayList<>();
+    synchronized (LambdaProfiler.class) {
+      for (int i = 0; i < _size; i++) {
+        Probe probe = probe(i);
+        if (probe != null) {
+          probes.add(probe);
+        }
+      }
+    }
+    for (Probe probe : probes) {
+      ClassLoader loader = probe._loader.get();
+      if (loader == null) {
+        continue;
+      }
+      String name = LambdaNames.getLambdaName(loader, probe._className).orElse(probe._className);
+      Probe total = byName.computeIfAbsent(name, n -> new Probe(n, null));
+      total._calls.add(probe._calls.sum());
+      total._nanos.add(probe._nanos);
+    }
+    List<Map.Entry<String, Probe>> sorted = new ArrayList<>(byName.entrySet());
+    sorted.sort((a, b) -> Long.compare(b.getValue().estimatedNanos(), a.getValue().estimatedNanos()));
+    Map<String, Map<String, Long>> report = new LinkedHashMap<>();
+    for (Map.Entry<String, Probe> entry : sorted) {
+      Probe probe = entry.getValue();
+      Map<String, Long> nanos = probe._nanos.toMap();
+      Map<String, Long> stats = new LinkedHashMap<>();
+      stats.put("calls", probe._calls.sum());
+      stats.put("estimatedNanos", probe.estimatedNanos());
+      stats.put("sampled", nanos.remove("count"));
+      stats.putAll(nanos);
+      report.put(entry.getKey(), stats);
+    }
+    return report;
+  }
+
+  private static final class Probe {
+
+    private final String _className;
+    private final WeakReference<ClassLoader> _loader;
+    private final LongAdder _calls = new LongAdder();
+    private final Histogram _nanos = new Histogram();
+
+    private Probe(String className, WeakReference<ClassLoader> loader) {
+      _className = className;
+      _loader = loader;
+    }
+
+    /**
+     * @return time spent in all invocations, extrapolated from sampled ones
+     */
+    private long estimatedNanos() {
+      long sampled = _nanos.getCount();
+      return sampled > 0 ? (long) ((double) _nanos.getSum() / sampled * _calls.sum()) : 0;
+    }
+  }
+
+  /**
+   * Must not strongly reference the class loader, otherwise it would never be collected.
+   */
+  private static final class LoaderReference extends WeakReference<ClassLoader> {
+
+    private final int _index;
+
+    private LoaderReference(ClassLoader loader, int index) {
+      super(loader, _collected);
+      _index = index;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package com.linkedin.util.lambda;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Command line tool that replaces frames of lambda classes in profiler output with names of lambdas,
+ * exported from a running JVM by {@link LambdaNames#exportNames(java.io.OutputStream)}:
+ * <pre>
+ *   java -cp lambda-names.jar com.linkedin.util.lambda.LambdaSymbolizer [--merge] [--event=jdk.ExecutionSample]
+ *       names.txt profile.collapsed|profile.jfr [output.collapsed]
+ * </pre>
+ * Collapsed stacks, one {@code frame;frame;... count} per line, are rewritten line by line so input of any size
+ * is streamed. With {@code --merge} lines that became equal are merged, which keeps distinct stacks in memory.
+ * JFR recordings are converted to merged collapsed stacks of given event type. They are read by {@code JfrStacks},
+ * which exists only in the JDK 11 version of the multi-release jar, so they can't be read on JDK 8.
+ * <p>
+ * Runtime names of lambda classes, e.g. {@code Foo$$Lambda$12/0x0000000800c0b440}, differ by index and
+ * address between runs. Names of hidden lambda classes are looked up with their address, which is all that tells
+ * lambdas of one class apart on JDK 21 and later, e.g. {@code Foo$$Lambda/0x0000000800c0b440}. Frames of lambdas
+ * without a name are written without index and address, so that they merge.
+ */
+public class LambdaSymbolizer {
+
+  private static final String LAMBDA_INFIX = "$$Lambda";
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final String DEFAULT_EVENT = "jdk.ExecutionSample";
+  private static final String USAGE =
+      "Usage: LambdaSymbolizer [--merge] [--event=<JFR event type>] <names> <input> [<output>]";
+  private static final String JFR_STACKS = LambdaSymbolizer.class.getPackage().getName() + ".JfrStacks";
+
+  private final Map<String, String> _names;
+  private final StringBuilder _frame = new StringBuilder();
+
+  /**
+   * @param names lambda names by binary name of lambda class, see {@link LambdaNames#exportedClassName(String)}
+   */
+  LambdaSymbolizer(Map<String, String> names) {
+    _names = names;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int status = run(args);
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  /**
+   * @return exit status
+   */
+  static int run(String[] args) throws IOException {
+    boolean merge = false;
+    String event = DEFAULT_EVENT;
+    List<String> files = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.equals("--merge")) {
+        merge = true;
+      } else if (arg.startsWith("--event=")) {
+        event = arg.substring("--event=".length());
+      } else {
+        files.add(arg);
+      }
+    }
+    if (files.size() < 2 || files.size() > 3) {
+      System.err.println(USAGE);
+      return 1;
+    }
+    Path input = Paths.get(files.get(1));
+    boolean jfr = input.toString().endsWith(".jfr");
+    if (jfr && javaVersion() < 11) {
+      System.err.println("Reading JFR recordings requires JDK 11 or later, running on "
+          + System.getProperty("java.version"));
+      System.err.println(USAGE);
+      return 1;
+    }
+    Map<String, String> names = new HashMap<>();
+    try (InputStream is = Files.newInputStream(Paths.get(files.get(0)))) {
+      PrecomputedNames.read(is, names);
+    }
+    LambdaSymbolizer symbolizer = new LambdaSymbolizer(names);
+    OutputStream os = files.size() == 3 ? Files.newOutputStream(Paths.get(files.get(2))) : System.out;
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+      if (jfr) {
+        Map<String, Long> stacks = new LinkedHashMap<>();
+        readJfr(input, event, (stack, count) -> stacks.merge(symbolizer.symbolize(stack), count, Long::sum));
+        write(stacks, out);
+      } else {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(input),
+            StandardCharsets.UTF_8), BUFFER_SIZE)) {
+          symbolizer.symbolizeCollapsed(in, out, merge);
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @param stacks receives stack traces as frames separated by {@code ;}, outermost first, with their counts
+   */
+  static void readJfr(Path recording, String eventType, ObjLongConsumer<String> stacks) throws IOException {
+    Method read;
+    try {
+      read = Class.forName(JFR_STACKS).getDeclaredMethod("read", Path.class, String.class, ObjLongConsumer.class);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Multi-release classes of JDK 11 are not on the class path", e);
+    }
+    try {
+      read.invoke(null, recording, eventType, stacks);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("Failed reading " + recording, e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static int javaVersion() {
+    String version = System.getProperty("java.specification.version");
+    return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+  }
+
+  void symbolizeCollapsed(BufferedReader in, Writer out, boolean merge) throws IOException {
+    Map<String, Long> stacks = merge ? new LinkedHashMap<>() : null;
+    String line;
+    while ((line = in.readLine()) != null) {
+      int space = line.lastIndexOf(' ');
+      if (merge && space > 0) {
+        try {
+          stacks.merge(symbolize(line.substring(0, space)), Long.parseLong(line.substring(space + 1)), Long::sum);
+          continue;
+        } catch (NumberFormatException e) {
+          //not a collapsed stack, written as it is
+        }
+      }
+      out.write(symbolize(line));
+      out.write('\n');
+    }
+    if (merge) {
+      write(stacks, out);
+    }
+  }
+
+  private static void write(Map<String, Long> stacks, Writer out) throws IOException {
+    for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+      out.write(entry.getKey());
+      out.write(' ');
+      out.write(Long.toString(entry.getValue()));
+      out.write('\n');
+    }
+  }
+
+  /**
+   * @param stack frames separated by {@code ;}
+   */
+  String symbolize(String stack) {
+    int infix = stack.indexOf(LAMBDA_INFIX);
+    if (infix < 0) {
+      //most stacks have no lambda frames and are written as they are
+      return stack;
+    }
+    StringBuilder result = new StringBuilder(stack.length() + 64);
+    int start = 0;
+    while (infix >= 0) {
+      int frameStart = stack.lastIndexOf(';', infix) + 1;
+      int frameEnd = stack.indexOf(';', infix);
+      if (frameEnd < 0) {
+        frameEnd = stack.length();
+      }
+      result.append(stack, start, frameStart);
+      symbolizeFrame(stack, frameStart, infix, frameEnd, result);
+      start = frameEnd;
+      infix = stack.indexOf(LAMBDA_INFIX, frameEnd);
+    }
+    return result.append(stack, start, stack.length()).toString();
+  }
+
+  /**
+   * Frame is made of lambda class name, e.g. {@code com/foo/Bar$$Lambda$12/0x0000000800c0b440} or
+   * {@code com.foo.Bar$$Lambda$12.0x0000000800c0b440}, followed by method name and annotations of the profiler.
+   */
+  private void symbolizeFrame(String stack, int start, int infix, int end, StringBuilder result) {
+    int pos = infix + LAMBDA_INFIX.length();
+    int indexEnd = pos;
+    if (pos < end && stack.charAt(pos) == '$') {
+      indexEnd = skipDigits(stack, pos + 1, end);
+    }
+    int suffixEnd = skipRuntimeSuffix(stack, indexEnd, end);
+    _frame.setLength(0);
+    for (int i = start; i < indexEnd; i++) {
+      char c = stack.charAt(i);
+      _frame.append(c == '/' ? '.' : c);
+    }
+    String name = null;
+    int addressEnd = skipAddress(stack, indexEnd, suffixEnd);
+    if (addressEnd > indexEnd) {
+      //address is separated by '/' in the runtime name whichever separator the profiler prints
+      int length = _frame.length();
+      _frame.append('/').append(stack, indexEnd + 1, addressEnd);
+      name = _names.get(_frame.toString());
+      _frame.setLength(length);
+    }
+    if (name == null) {
+      name = _names.get(_frame.toString());
+    }
+    if (name != null) {
+      result.append('[');
+      for (int i = 0; i < name.length(); i++) {
+        char c = name.charAt(i);
+        //frame separator must not appear in a frame
+        result.append(c == ';' ? ',' : c);
+      }
+      result.append(']');
+    } else {
+      result.append(stack, start, infix + LAMBDA_INFIX.length());
+    }
+    result.append(stack, suffixEnd, end);
+  }
+
+  private static int skipDigits(String s, int pos, int end) {
+    while (pos < end && Character.isDigit(s.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * @return end of the address of a hidden class that follows a separator at given position, or the position
+   * if there is none
+   */
+  private static int skipAddress(String s, int pos, int end) {
+    if (pos + 3 < end && s.startsWith("0x", pos + 1)) {
+      int addressEnd = pos + 3;
+      while (addressEnd < end && Character.digit(s.charAt(addressEnd), 16) >= 0) {
+        addressEnd++;
+      }
+      return addressEnd;
+    }
+    return pos;
+  }
+
+  /**
+   * Suffix is {@code /} followed by a decimal number on JDK 8 and by a hexadecimal address of a hidden class
+   * later. Profilers may print the separator as {@code .} or {@code +} and JFR appends another number.
+   * Method names never start with a digit so a number after {@code .} is always part of the suffix.
+   */
+  private static int skipRuntimeSuffix(String s, int pos, int end) {
+    while (pos + 1 < end && (s.charAt(pos) == '/' || s.charAt(pos) == '.' || s.charAt(pos) == '+')) {
+      boolean hex = s.startsWith("0x", pos + 1);
+      int digits = hex ? pos + 3 : pos + 1;
+      int digitsEnd = digits;
+      while (digitsEnd < end && Character.digit(s.charAt(digitsEnd), hex ? 16 : 10) >= 0) {
+        digitsEnd++;
+      }
+      if (digitsEnd == digits) {
+        break;
+      }
+      pos = digitsEnd;
+    }
+    return pos;
+  }
+
+}
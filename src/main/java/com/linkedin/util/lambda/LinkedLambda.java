@@ -0,0 +1,97 @@
+package com.linkedin.util.lambda;
+
+import java.lang.invoke.MethodHandleInfo;
+import java.lang.ref.WeakReference;
+import java.util.Optional;
+
+/**
+ * Lambda class linked through {@link LambdaBootstraps}, identified by the call site that created it.
+ * It is named when it is linked in eager mode, otherwise when its name is requested for the first time.
+ * Class loader is weakly referenced so that it does not keep the lambda class alive.
+ */
+class LinkedLambda {
+
+  private final String _className;
+  private final String _hostClass;
+  private final WeakReference<ClassLoader> _loader;
+  private final String _method;
+  private final int _site;
+  private final String _implOwner;
+  private final String _implName;
+  private final String _implDesc;
+  private final SymbolTable _symbols;
+  private Optional<CompactName> _name;
+
+  /**
+   * @param method name and descriptor of the method that contains the call site
+   * @param site number of the call site within the method
+   * @param implMethod implementation method of the lambda, {@code null} if it is not known
+   * @param symbols symbols of the class loader
+   */
+  LinkedLambda(String className, String hostClass, ClassLoader loader, String method, int site,
+      MethodHandleInfo implMethod, SymbolTable symbols) {
+    _symbols = symbols;
+    _className = className;
+    _hostClass = hostClass;
+    _loader = new WeakReference<>(loader);
+    _method = method;
+    _site = site;
+    //handle info references classes of the implementation method, only their names are kept
+    _implOwner = implMethod != null ? implMethod.getDeclaringClass().getName().replace('.', '/') : null;
+    _implName = implMethod != null ? implMethod.getName() : null;
+    _implDesc = implMethod != null ? implMethod.getMethodType().toMethodDescriptorString() : null;
+  }
+
+  /**
+   * Finds the call site among call sites of the host class, analysis happens at most once.
+   */
+  synchronized Optional<CompactName> resolve() {
+    if (_name == null) {
+      PersistentNameCache nameCache = PersistentNameCache.getInstance();
+      Optional<String> precomputed = PrecomputedNames.getSite(_loader.get(), _hostClass, _method, _site);
+      if (!precomputed.isPresent() && _implOwner != null) {
+        precomputed = PrecomputedNames.get(_loader.get(), _hostClass, _implOwner, _implName, _implDesc);
+      }
+      if (!precomputed.isPresent() && nameCache != null) {
+        precomputed = nameCache.getSite(_loader.get(), _hostClass, _method, _site);
+      }
+      if (precomputed.isPresent()) {
+        _name = CompactName.of(LambdaName.parse(_className, precomputed.get()), _symbols);
+        exported(precomputed);
+        return _name;
+      }
+      AgentMetrics metrics = AgentMetrics.getInstance();
+      Object event = AnalysisEvents.begin();
+      long allocated = metrics.allocatedBytes();
+      long start = metrics.phaseStart();
+      Optional<LambdaName> lambdaName = Optional.empty();
+      try {
+        lambdaName = OwnerClassCache.getInstance().get(_loader.get(), _hostClass)
+            .flatMap(ownerClass -> ownerClass.getCallSiteIndex().getSite(_method, _site)
+                .map(site -> CallSiteNamer.lambdaName(ownerClass, site, _className)));
+        lambdaName.ifPresent(metrics::analyzed);
+        exported(lambdaName.flatMap(LambdaName::getName));
+        if (nameCache != null) {
+          lambdaName.flatMap(LambdaName::getName)
+              .ifPresent(name -> nameCache.putSite(_loader.get(), _hostClass, _method, _site, name));
+        }
+        _name = lambdaName.flatMap(name -> CompactName.of(name, _symbols));
+      } catch (RuntimeException e) {
+        //e.g. host class compiled without local variable tables
+        metrics.analysisFailure();
+        _name = Optional.empty();
+      }
+      metrics.record(AgentMetrics.Phase.ANALYSIS, start);
+      metrics.recordAllocation(allocated);
+      AnalysisEvents.end(event, _className, _hostClass, lambdaName.orElse(null));
+    }
+    return _name;
+  }
+
+  private void exported(Optional<String> name) {
+    NameMapExporter exporter = NameMapExporter.getInstance();
+    if (exporter != null && name.isPresent()) {
+      exporter.exported(_loader.get(), LambdaNames.exportedClassName(_className), name.get());
+    }
+  }
+}
@@ -0,0 +1,343 @@
+package com.linkedin.util.lambda;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read only binary lambda name index, memory mapped so that it stays out of the heap and its pages
+ * are shared by all JVMs on a host that map the same file. Layout, all integers big endian:
+ * <pre>
+ * header:  magic, version, number of entries, offset of string pool
+ * entries: key hash, key offset, key length, name offset, name length - sorted by key hash, then key bytes
+ * pool:    key and name bytes, equal names are stored once
+ * </pre>
+ * Key hash is {@code String.hashCode()} of the key, binary search compares key bytes only when hashes are equal.
+ * Keys are the same as keys of {@link PrecomputedNames}, encoded char by char like class file
+ * constant pool strings so that lookups compare them with {@code String}s without encoding them first.
+ * Names are UTF-8. Lookup allocates nothing until the name is turned into a {@code String}.
+ * Offsets and lengths of all entries are checked when the index is opened, so that a corrupted file is rejected
+ * instead of failing lookups.
+ */
+class MappedNameIndex {
+
+  static final int MAGIC = 0x4c4e4958;
+  static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+  private static final int ENTRY_SIZE = 20;
+
+  private final ByteBuffer _buffer;
+  private final int _size;
+
+  MappedNameIndex(ByteBuffer buffer) {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a lambda name index");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("Unsupported lambda name index version " + buffer.getInt(4));
+    }
+    int size = buffer.getInt(8);
+    int poolOffset = buffer.getInt(12);
+    if (size < 0 || poolOffset != HEADER_SIZE + (long) size * ENTRY_SIZE || poolOffset > buffer.capacity()) {
+      throw new IllegalArgumentException("Corrupted lambda name index");
+    }
+    for (int i = 0; i < size; i++) {
+      int entry = HEADER_SIZE + i * ENTRY_SIZE;
+      if (!isInPool(buffer, poolOffset, buffer.getInt(entry + 4), buffer.getInt(entry + 8))
+          || !isInPool(buffer, poolOffset, buffer.getInt(entry + 12), buffer.getInt(entry + 16))) {
+        throw new IllegalArgumentException("Corrupted lambda name index entry " + i);
+      }
+    }
+    _buffer = buffer;
+    _size = size;
+  }
+
+  private static boolean isInPool(ByteBuffer buffer, int poolOffset, int offset, int length) {
+    return offset >= poolOffset && length >= 0 && (long) offset + length <= buffer.capacity();
+  }
+
+  static MappedNameIndex open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      //mapping stays valid after the channel is closed
+      return new MappedNameIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  int size() {
+    return _size;
+  }
+
+  /**
+   * @return entry of the lambda or -1 if it is not in the index
+   */
+  int find(String hostClass, String implOwner, String implName, String implDesc) {
+    int hash = keyHash(hostClass, implOwner, implName, implDesc);
+    int low = 0;
+    int high = _size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int entry = HEADER_SIZE + mid * ENTRY_SIZE;
+      int cmp = Integer.compare(_buffer.getInt(entry), hash);
+      if (cmp == 0) {
+        cmp = compareKey(_buffer.getInt(entry + 4), _buffer.getInt(entry + 8), hostClass, implOwner, implName,
+            implDesc);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds entry by a key that is not made of implementation method, e.g. one of {@link PersistentNameCache}.
+   * @return entry or -1 if it is not in the index
+   */
+  int find(String key) {
+    int hash = key.hashCode();
+    int low = 0;
+    int high = _size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int entry = HEADER_SIZE + mid * ENTRY_SIZE;
+      int cmp = Integer.compare(_buffer.getInt(entry), hash);
+      if (cmp == 0) {
+        cmp = compareKey(_buffer.getInt(entry + 4), _buffer.getInt(entry + 8), key);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  String getName(int entry) {
+    int offset = _buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 12);
+    byte[] bytes = new byte[_buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 16)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = _buffer.get(offset + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reverses {@link #encodeKey(String)}, used when an index is rewritten.
+   */
+  String getKey(int entry) {
+    int offset = _buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 4);
+    int end = offset + _buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    StringBuilder key = new StringBuilder(end - offset);
+    while (offset < end) {
+      int b = _buffer.get(offset++) & 0xff;
+      if (b < 0x80) {
+        key.append((char) b);
+      } else if (offset + (b < 0xe0 ? 1 : 2) > end) {
+        throw new IllegalArgumentException("Corrupted lambda name index entry " + entry);
+      } else if (b < 0xe0) {
+        key.append((char) (((b & 0x1f) << 6) | (_buffer.get(offset++) & 0x3f)));
+      } else {
+        int b1 = _buffer.get(offset++) & 0x3f;
+        key.append((char) (((b & 0x0f) << 12) | (b1 << 6) | (_buffer.get(offset++) & 0x3f)));
+      }
+    }
+    return key.toString();
+  }
+
+  Optional<String> get(String hostClass, String implOwner, String implName, String implDesc) {
+    int entry = find(hostClass, implOwner, implName, implDesc);
+    return entry < 0 ? Optional.empty() : Optional.of(getName(entry));
+  }
+
+  /**
+   * @return {@code String.hashCode()} of the key, without building the key
+   */
+  private static int keyHash(String host, String owner, String name, String desc) {
+    int h = hash(0, host);
+    h = 31 * h + ' ';
+    h = hash(h, owner);
+    h = 31 * h + '.';
+    h = hash(h, name);
+    return hash(h, desc);
+  }
+
+  private static int hash(int h, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h;
+  }
+
+  /**
+   * Compares key stored in the pool with {@code host ' ' owner '.' name desc}.
+   */
+  private int compareKey(int offset, int length, String host, String owner, String name, String desc) {
+    int pos = offset;
+    int end = offset + length;
+    int keyLength = host.length() + owner.length() + name.length() + desc.length() + 2;
+    for (int i = 0; i < keyLength; i++) {
+      char c = keyCharAt(i, host, owner, name, desc);
+      for (int j = 0; j < encodedLength(c); j++) {
+        if (pos == end) {
+          //stored key is a prefix
+          return -1;
+        }
+        int cmp = (_buffer.get(pos++) & 0xff) - encodedByte(c, j);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+    }
+    return pos < end ? 1 : 0;
+  }
+
+  private int compareKey(int offset, int length, String key) {
+    int pos = offset;
+    int end = offset + length;
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      for (int j = 0; j < encodedLength(c); j++) {
+        if (pos == end) {
+          return -1;
+        }
+        int cmp = (_buffer.get(pos++) & 0xff) - encodedByte(c, j);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+    }
+    return pos < end ? 1 : 0;
+  }
+
+  private static char keyCharAt(int i, String host, String owner, String name, String desc) {
+    if (i < host.length()) {
+      return host.charAt(i);
+    }
+    i -= host.length();
+    if (i == 0) {
+      return ' ';
+    }
+    i--;
+    if (i < owner.length()) {
+      return owner.charAt(i);
+    }
+    i -= owner.length();
+    if (i == 0) {
+      return '.';
+    }
+    i--;
+    if (i < name.length()) {
+      return name.charAt(i);
+    }
+    return desc.charAt(i - name.length());
+  }
+
+  private static int encodedLength(char c) {
+    return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+  }
+
+  private static int encodedByte(char c, int i) {
+    switch (encodedLength(c)) {
+      case 1:
+        return c;
+      case 2:
+        return i == 0 ? 0xc0 | (c >> 6) : 0x80 | (c & 0x3f);
+      default:
+        return i == 0 ? 0xe0 | (c >> 12) : i == 1 ? 0x80 | ((c >> 6) & 0x3f) : 0x80 | (c & 0x3f);
+    }
+  }
+
+  static byte[] encodeKey(String key) {
+    int length = 0;
+    for (int i = 0; i < key.length(); i++) {
+      length += encodedLength(key.charAt(i));
+    }
+    byte[] bytes = new byte[length];
+    int pos = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      for (int j = 0; j < encodedLength(c); j++) {
+        bytes[pos++] = (byte) encodedByte(c, j);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes index of names keyed by {@link PrecomputedNames#key(String, String, String, String)}
+   * or by keys looked up with {@link #find(String)}.
+   */
+  static void write(Map<String, String> names, OutputStream os) throws IOException {
+    List<Map.Entry<String, String>> sorted = new ArrayList<>(names.entrySet());
+    sorted.sort(Comparator.comparingInt((Map.Entry<String, String> e) -> e.getKey().hashCode())
+        .thenComparing((a, b) -> compareBytes(encodeKey(a.getKey()), encodeKey(b.getKey()))));
+
+    List<byte[]> pool = new ArrayList<>();
+    Map<String, Integer> nameOffsets = new HashMap<>();
+    int poolOffset = HEADER_SIZE + sorted.size() * ENTRY_SIZE;
+    int poolSize = 0;
+    int[] entries = new int[sorted.size() * 5];
+    for (int i = 0; i < sorted.size(); i++) {
+      byte[] key = encodeKey(sorted.get(i).getKey());
+      entries[i * 5] = sorted.get(i).getKey().hashCode();
+      entries[i * 5 + 1] = poolOffset + poolSize;
+      entries[i * 5 + 2] = key.length;
+      pool.add(key);
+      poolSize += key.length;
+      String name = sorted.get(i).getValue();
+      byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+      Integer nameOffset = nameOffsets.get(name);
+      if (nameOffset == null) {
+        nameOffset = poolOffset + poolSize;
+        nameOffsets.put(name, nameOffset);
+        pool.add(nameBytes);
+        poolSize += nameBytes.length;
+      }
+      entries[i * 5 + 3] = nameOffset;
+      entries[i * 5 + 4] = nameBytes.length;
+    }
+
+    DataOutputStream out = new DataOutputStream(os);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(sorted.size());
+    out.writeInt(poolOffset);
+    for (int value : entries) {
+      out.writeInt(value);
+    }
+    for (byte[] bytes : pool) {
+      out.write(bytes);
+    }
+    out.flush();
+  }
+
+  private static int compareBytes(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return a.length - b.length;
+  }
+}
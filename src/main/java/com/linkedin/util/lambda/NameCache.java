@@ -0,0 +1,48 @@
+package com.linkedin.util.lambda;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of formatted lambda names so that names requested often are not
+ * rebuilt from their symbols on every request.
+ */
+class NameCache {
+
+  static final String NAME_CACHE_SIZE = "nameCacheSize";
+
+  private final Map<CompactName, String> _cache;
+
+  NameCache(int maxSize) {
+    _cache = new LinkedHashMap<CompactName, String>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CompactName, String> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return cache or {@code null} if formatted names are not cached
+   */
+  static NameCache fromOptions(AgentOptions options) {
+    int size = options.getInt(NAME_CACHE_SIZE, 0);
+    return size > 0 ? new NameCache(size) : null;
+  }
+
+  String get(CompactName name) {
+    String formatted;
+    synchronized (_cache) {
+      formatted = _cache.get(name);
+    }
+    if (formatted == null) {
+      formatted = name.format();
+      synchronized (_cache) {
+        _cache.put(name, formatted);
+      }
+    }
+    return formatted;
+  }
+}
@@ -3,45 +3,204 @@ package com.linkedin.util.lambda;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 class NameGenClassVisitor extends ClassVisitor {
 
   private static final Pattern LAMBDA_NAME_PATTERN = Pattern.compile("^.*\\$\\$Lambda\\$\\d+$");
-  private String _inferredOperation;
+  private static final String LAMBDA_NAME_INFIX = "$$Lambda$";
+  private static final int PARSING_OPTIONS = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+  //visitors are reused by analyses running on the same thread, see analyze
+  private static final ThreadLocal<NameGenClassVisitor> VISITORS =
+      ThreadLocal.withInitial(() -> new NameGenClassVisitor(Opcodes.ASM9));
+
+  private final NameGenMethodVisitor _methodVisitor;
   private Optional<SourcePointer> _sourcePointer;
+  private ClassLoader _loader;
+  private boolean _inUse;
+  private String _inferredOperation;
+  private Optional<LambdaCallSite> _callSite;
+  //call site was found in the call site index as the only one with the implementation method
+  private boolean _uniqueCallSite;
   private String _className;
+  private String _hostClassName;
+  private String _precomputedName;
+  private String _implOwner;
+  private String _implName;
+  private String _implDesc;
 
-  public NameGenClassVisitor(int api) {
+  private NameGenClassVisitor(int api) {
     super(api);
+    _methodVisitor = new NameGenMethodVisitor(api, null, -1, this::setInferredOperation, new CallSiteResolver() {
+
+      @Override
+      public Optional<LambdaCallSite> resolve(String implOwner, String implName, String implDesc) {
+        return resolveCallSite(implOwner, implName, implDesc);
+      }
+
+      @Override
+      public Optional<String> precomputedName(String implOwner, String implName, String implDesc) {
+        return NameGenClassVisitor.this.precomputedName(implOwner, implName, implDesc);
+      }
+    }, null);
+  }
+
+  /**
+   * @param sourcePointer source pointer of the lambda class if its call site can't be found in the call site
+   * index, {@code null} if it should be captured from the current stack when needed
+   * @param loader class loader that defines the lambda class
+   */
+  private void reset(Optional<SourcePointer> sourcePointer, ClassLoader loader) {
+    _sourcePointer = sourcePointer;
+    _loader = loader;
+    _inferredOperation = null;
+    _callSite = null;
+    _uniqueCallSite = false;
+    _className = null;
+    _hostClassName = null;
+    _precomputedName = null;
+    _implOwner = null;
+    _implName = null;
+    _implDesc = null;
   }
 
-  private boolean isALambdaClassByName(String name) {
+  static boolean isALambdaClassByName(String name) {
     return LAMBDA_NAME_PATTERN.matcher(name).matches();
   }
 
+  static LambdaName analyze(byte[] byteCode, Optional<SourcePointer> sourcePointer, ClassLoader loader) {
+    return analyze(new ClassReader(byteCode), sourcePointer, loader);
+  }
+
+  /**
+   * Analyzes lambda class while it is being loaded, its source pointer is captured from the stack when needed.
+   */
+  static LambdaName analyze(ClassReader reader, ClassLoader loader) {
+    return analyze(reader, null, loader);
+  }
+
+  private static LambdaName analyze(ClassReader reader, Optional<SourcePointer> sourcePointer, ClassLoader loader) {
+    NameGenClassVisitor cv = VISITORS.get();
+    if (cv._inUse) {
+      //e.g. reading an owner class loaded another lambda class on this thread
+      cv = new NameGenClassVisitor(Opcodes.ASM9);
+    }
+    cv._inUse = true;
+    cv.reset(sourcePointer, loader);
+    try {
+      return analyze(reader, cv);
+    } finally {
+      //reused visitor must not keep class loader alive
+      cv.reset(null, null);
+      cv._methodVisitor.reset(null, -1, null);
+      cv._inUse = false;
+    }
+  }
+
+  private static LambdaName analyze(ClassReader reader, NameGenClassVisitor cv) {
+    AgentMetrics metrics = AgentMetrics.getInstance();
+    Object event = AnalysisEvents.begin();
+    long allocated = metrics.allocatedBytes();
+    long start = metrics.phaseStart();
+    LambdaName lambdaName = null;
+    try {
+      //proxy classes have neither debug information nor frames worth reading
+      reader.accept(cv, PARSING_OPTIONS);
+      lambdaName = cv.getLambdaName();
+    } finally {
+      metrics.record(AgentMetrics.Phase.ANALYSIS, start);
+      metrics.recordAllocation(allocated);
+      AnalysisEvents.end(event, cv._className, cv._hostClassName, lambdaName);
+    }
+    metrics.analyzed(lambdaName);
+    return lambdaName;
+  }
+
   @Override
   public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
     super.visit(version, access, name, signature, superName, interfaces);
     _className = name.replace('/', '.');
     if (isALambdaClassByName(name)) {
-      _sourcePointer = SourcePointer.get();
+      //lambda class is named after the class in which it was created
+      _hostClassName = name.substring(0, name.lastIndexOf(LAMBDA_NAME_INFIX));
+    } else {
+      _callSite = Optional.empty();
     }
   }
 
   @Override
   public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-    return new NameGenMethodVisitor(api, super.visitMethod(access, name, desc, signature, exceptions),
-        this::setInferredOperation, _sourcePointer);
+    //methods are visited one after another, single method visitor is enough
+    _methodVisitor.reset(super.visitMethod(access, name, desc, signature, exceptions), Type.getArgumentCount(desc),
+        _loader);
+    return _methodVisitor;
+  }
+
+  private Optional<String> precomputedName(String implOwner, String implName, String implDesc) {
+    if (_hostClassName == null) {
+      return Optional.empty();
+    }
+    _implOwner = implOwner;
+    _implName = implName;
+    _implDesc = implDesc;
+    Optional<String> name = PrecomputedNames.get(_loader, _hostClassName, implOwner, implName, implDesc);
+    PersistentNameCache nameCache = PersistentNameCache.getInstance();
+    if (!name.isPresent() && nameCache != null) {
+      name = nameCache.get(_loader, _hostClassName, implOwner, implName, implDesc);
+    }
+    name.ifPresent(n -> _precomputedName = n);
+    return name;
   }
 
   private void setInferredOperation(String inferredOperation) {
     _inferredOperation = inferredOperation;
   }
 
+  private Optional<LambdaCallSite> resolveCallSite(String implOwner, String implName, String implDesc) {
+    if (_callSite == null) {
+      Optional<CallSiteIndex> index = CallSiteIndex.isEnabled()
+          ? OwnerClassCache.getInstance().get(_loader, _hostClassName).map(OwnerClass::getCallSiteIndex)
+          : Optional.empty();
+      _callSite = index.flatMap(idx -> idx.find(implOwner, implName, implDesc));
+      _uniqueCallSite = _callSite.isPresent();
+      if (!_callSite.isPresent()) {
+        _callSite = stackCallSite();
+      }
+      if (!_callSite.isPresent()) {
+        _callSite = index.flatMap(idx -> idx.findApproximate(implOwner, implName, implDesc));
+      }
+    }
+    return _callSite;
+  }
+
+  private Optional<LambdaCallSite> stackCallSite() {
+    Optional<SourcePointer> sourcePointer = _sourcePointer != null ? _sourcePointer
+        : CallSiteIndex.isStackFallback() ? SourcePointer.get() : Optional.empty();
+    return sourcePointer.map(sp -> LambdaCallSite.fromSourcePointer(sp, _loader));
+  }
+
   public LambdaName getLambdaName() {
-    String sourcePointer = _sourcePointer.map(SourcePointer::toString).orElse(null);
-    return new LambdaName(_className, _inferredOperation, sourcePointer);
+    if (_precomputedName != null) {
+      return LambdaName.parse(_className, _precomputedName);
+    }
+    if (_callSite == null) {
+      //implementation method is not known, fall back to source pointer
+      _callSite = stackCallSite();
+    }
+    SourcePointer sourcePointer = _callSite.map(LambdaCallSite::getSourcePointer).orElse(null);
+    LambdaName lambdaName = new LambdaName(_className, _inferredOperation, sourcePointer);
+    PersistentNameCache nameCache = PersistentNameCache.getInstance();
+    //names of sites found on the stack or approximated are not cached, other lambdas with the same
+    //implementation method are created at different sites and would hit them
+    if (nameCache != null && _uniqueCallSite) {
+      lambdaName.getName().ifPresent(
+          name -> nameCache.put(_loader, _hostClassName, _implOwner, _implName, _implDesc, name));
+    }
+    return lambdaName;
   }
 }
@@ -1,23 +1,21 @@
 package com.linkedin.util.lambda;
 
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.TypePath;
-import org.objectweb.asm.util.TraceClassVisitor;
 
 class NameGenMethodVisitor extends MethodVisitor {
 
   private final Consumer<String> _inferredOperationConsumer;
-  protected final Optional<SourcePointer> _sourcePointer;
+  protected final CallSiteResolver _callSiteResolver;
+  private int _lambdaArity;
+  protected ClassLoader _loader;
 
   protected State _state = State.INIT;
   protected String _name;
@@ -25,11 +23,32 @@ class NameGenMethodVisitor extends MethodVisitor {
   protected String _desc;
   protected int _opcode;
 
-  public NameGenMethodVisitor(int api, MethodVisitor mv, Consumer<String> inferredOperationConsumer,
-      Optional<SourcePointer> sourcePointer) {
+  /**
+   * @param lambdaArity number of parameters of the visited method, -1 if it does not implement a lambda
+   * @param callSiteResolver finds call site of the lambda once its implementation method is known
+   * @param loader class loader used to find classes that own lambdas
+   */
+  public NameGenMethodVisitor(int api, MethodVisitor mv, int lambdaArity, Consumer<String> inferredOperationConsumer,
+      CallSiteResolver callSiteResolver, ClassLoader loader) {
     super(api, mv);
+    _lambdaArity = lambdaArity;
     _inferredOperationConsumer = inferredOperationConsumer;
-    _sourcePointer = sourcePointer;
+    _callSiteResolver = callSiteResolver;
+    _loader = loader;
+  }
+
+  /**
+   * Prepares this visitor for visiting next method, visitor is reused to avoid allocating one per method.
+   */
+  void reset(MethodVisitor mv, int lambdaArity, ClassLoader loader) {
+    this.mv = mv;
+    _lambdaArity = lambdaArity;
+    _loader = loader;
+    _state = State.INIT;
+    _name = null;
+    _owner = null;
+    _desc = null;
+    _opcode = 0;
   }
 
   @Override
@@ -48,40 +67,31 @@ class NameGenMethodVisitor extends MethodVisitor {
     return super.visitAnnotationDefault();
   }
 
-  protected Optional<String> findOwner(SourcePointer sp) {
-    MethodRefOwnerFinder ownerFinder = new MethodRefOwnerFinder(api, sp._methodName, sp._lineNumber);
-    try {
-      ClassReader cr = new ClassReader(sp._className.replace('/', '.'));
-//      cr.accept(new TraceClassVisitor(ownerFinder, new PrintWriter(System.out)), 0);
-      cr.accept(ownerFinder, 0);
-      return ownerFinder.getInferredOwner();
-    } catch (IOException e) {
-      return Optional.empty();
-    }
-  }
-
   @Override
   public void visitEnd() {
+    if ((_state == State.METHOD_REF || _state == State.BLOCK)
+        && _callSiteResolver.precomputedName(_owner, _name, _desc).isPresent()) {
+      _state = State.UNKNOWN;
+    }
     switch (_state) {
       case METHOD_REF:
+        Optional<LambdaCallSite> callSite = _callSiteResolver.resolve(_owner, _name, _desc);
         if (_opcode == Opcodes.INVOKESTATIC) {
           _inferredOperationConsumer.accept(Util.extractSimpleName(_owner, "/") + "::" + _name);
         } else {
-          Optional<String> fullName = _sourcePointer.flatMap(this::findOwner)
+          Optional<String> fullName = callSite.flatMap(LambdaCallSite::getReceiver)
               .map(ownr -> ownr + "::" + _name);
           _inferredOperationConsumer.accept(fullName.orElse(_name));
         }
         break;
       case BLOCK:
+        _callSiteResolver.resolve(_owner, _name, _desc);
         //analyze class that contains synthetic method created by lambda expression
-        LambdaClassVisitor cv = new LambdaClassVisitor(api, _name, _desc, _inferredOperationConsumer);
-        try {
-          ClassReader cr = new ClassReader(_owner.replace('/', '.'));
-//          cr.accept(new TraceClassVisitor(cv, new PrintWriter(System.out)), 0);
-          cr.accept(cv, 0);
-          _inferredOperationConsumer.accept(cv.getName());
-        } catch (IOException e) {
-        }
+        LambdaClassVisitor cv = new LambdaClassVisitor(api, _name, _desc, _lambdaArity, _inferredOperationConsumer,
+            _loader);
+        OwnerClassCache.getInstance().get(_loader, _owner)
+          .flatMap(ownerClass -> ownerClass.getMethod(_name, _desc))
+          .ifPresent(method -> _inferredOperationConsumer.accept(cv.visitLambdaMethod(method)));
       default:
         break;
     }
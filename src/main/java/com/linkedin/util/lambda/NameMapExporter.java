@@ -0,0 +1,216 @@
+package com.linkedin.util.lambda;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a file mapping names of lambda classes to lambda names, one {@code class name '\t' name} per line,
+ * like {@code /tmp/perf-<pid>.map} does for JIT compiled code, so that profilers can name lambdas without
+ * attaching to the JVM. File has the format read by {@link LambdaSymbolizer}.
+ * <p>
+ * Threads that name lambdas only enqueue names, a background thread appends them to the file periodically.
+ * Names are dropped when the queue is full, and no more names are accepted once writing the file failed.
+ * When class loaders that defined at least half of the lambdas in the file are collected the file is rewritten
+ * with names of live lambdas only and atomically replaces the previous one, readers have to open it again.
+ */
+class NameMapExporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NameMapExporter.class);
+
+  static final String NAME_MAP = "nameMap";
+  static final String NAME_MAP_FLUSH_MILLIS = "nameMapFlushMillis";
+  static final String NAME_MAP_QUEUE_SIZE = "nameMapQueueSize";
+
+  private static final String PID_PLACEHOLDER = "%p";
+
+  private static volatile NameMapExporter _instance;
+
+  private final Path _file;
+  private final long _flushMillis;
+  private final BlockingQueue<Entry> _queue;
+  private final LongAdder _dropped = new LongAdder();
+  private volatile boolean _closed;
+
+  //accessed only by the thread that writes the file
+  private final Map<ClassLoader, List<Entry>> _byLoader = new WeakHashMap<>();
+  private final List<Entry> _permanent = new ArrayList<>();
+  private Writer _out;
+  private int _lines;
+
+  NameMapExporter(Path file, long flushMillis, int queueSize) {
+    _file = file;
+    _flushMillis = flushMillis;
+    _queue = new LinkedBlockingQueue<>(queueSize);
+  }
+
+  /**
+   * @return exporter or {@code null} if names are not exported
+   */
+  static NameMapExporter getInstance() {
+    return _instance;
+  }
+
+  static void configure(AgentOptions options) {
+    options.getString(NAME_MAP).ifPresent(file -> {
+      String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+      NameMapExporter exporter = new NameMapExporter(Paths.get(file.replace(PID_PLACEHOLDER, pid)),
+          options.getLong(NAME_MAP_FLUSH_MILLIS, 1000), options.getInt(NAME_MAP_QUEUE_SIZE, 65536));
+      exporter.start();
+      _instance = exporter;
+    });
+  }
+
+  void start() {
+    Thread thread = new Thread(this::run, "lambda-names-map");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Never blocks, name is written by the background thread.
+   * @param loader class loader that defined the lambda class, {@code null} for the bootstrap class loader
+   * @param className name of the lambda class, see {@link LambdaNames#exportedClassName(String)}
+   */
+  void exported(ClassLoader loader, String className, String name) {
+    if (!_closed && !_queue.offer(new Entry(loader, className, name))) {
+      _dropped.increment();
+    }
+  }
+
+  /**
+   * @return number of names that did not fit in the queue
+   */
+  long getDropped() {
+    return _dropped.sum();
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        Thread.sleep(_flushMillis);
+        flush();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOGGER.warn("Failed writing lambda name map " + _file + ", names are not exported any more", e);
+      close();
+    }
+  }
+
+  /**
+   * Stops accepting names and releases the ones waiting to be written.
+   */
+  void close() {
+    _closed = true;
+    _queue.clear();
+    if (_instance == this) {
+      _instance = null;
+    }
+  }
+
+  /**
+   * Appends enqueued names and compacts the file if needed.
+   */
+  void flush() throws IOException {
+    if (_out == null) {
+      _out = open(_file, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    Entry entry;
+    while ((entry = _queue.poll()) != null) {
+      if (entry._loader == null) {
+        _permanent.add(entry);
+      } else {
+        ClassLoader loader = entry._loader.get();
+        if (loader == null) {
+          //collected while queued, lambda is gone
+          continue;
+        }
+        _byLoader.computeIfAbsent(loader, l -> new ArrayList<>()).add(entry);
+      }
+      write(entry, _out);
+      _lines++;
+    }
+    _out.flush();
+    int live = live();
+    if (_lines - live > 0 && _lines - live >= live) {
+      compact();
+      _lines = live;
+    }
+  }
+
+  /**
+   * @return number of names of lambdas whose class loader was not collected
+   */
+  private int live() {
+    int live = _permanent.size();
+    for (List<Entry> entries : _byLoader.values()) {
+      live += entries.size();
+    }
+    return live;
+  }
+
+  private void compact() throws IOException {
+    Path tmp = _file.resolveSibling(_file.getFileName() + ".tmp");
+    try (Writer out = open(tmp, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Entry entry : _permanent) {
+        write(entry, out);
+      }
+      for (List<Entry> entries : _byLoader.values()) {
+        for (Entry entry : entries) {
+          write(entry, out);
+        }
+      }
+    }
+    _out.close();
+    Files.move(tmp, _file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    _out = open(_file, StandardOpenOption.APPEND);
+  }
+
+  private static Writer open(Path file, StandardOpenOption mode) throws IOException {
+    OutputStream os = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+    return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+  }
+
+  private static void write(Entry entry, Writer out) throws IOException {
+    out.write(entry._className);
+    out.write('\t');
+    out.write(entry._name);
+    out.write('\n');
+  }
+
+  private static class Entry {
+
+    //queued entries must not keep class loaders alive, null for the bootstrap class loader
+    private final WeakReference<ClassLoader> _loader;
+    private final String _className;
+    private final String _name;
+
+    private Entry(ClassLoader loader, String className, String name) {
+      _loader = loader != null ? new WeakReference<>(loader) : null;
+      _className = className;
+      _name = name;
+    }
+  }
+}
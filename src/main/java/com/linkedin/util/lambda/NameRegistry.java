@@ -0,0 +1,262 @@
+package com.linkedin.util.lambda;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Names of lambda classes, lambdas linked through {@link LambdaBootstraps} and lambdas waiting to be analyzed,
+ * kept per class loader that defined them. Class loaders are weakly referenced so names of lambdas of a collected
+ * class loader are released with it. Number of names and linked lambdas can be capped, least recently used ones
+ * are evicted first. Symbols of names are interned per class loader too and released with it.
+ * <p>
+ * Maps of a class loader are concurrent. Finding them takes a lock only when the class loader differs from
+ * the one looked up last, and keeping the order of least recently used names takes a lock only when names
+ * are capped.
+ */
+class NameRegistry {
+
+  static final String MAX_NAMES = "maxNames";
+
+  private final int _maxNames;
+  private final Map<ClassLoader, LoaderNames> _byLoader = new WeakHashMap<>();
+  //most lambdas are defined by one class loader
+  private volatile LoaderNames _last;
+  private final Map<NameKey, Boolean> _lru;
+  private final LongAdder _evictions = new LongAdder();
+
+  /**
+   * @param maxNames maximum number of names, 0 means unlimited
+   */
+  NameRegistry(int maxNames) {
+    _maxNames = maxNames;
+    _lru = maxNames > 0 ? new LinkedHashMap<NameKey, Boolean>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<NameKey, Boolean> eldest) {
+        if (size() > _maxNames) {
+          LoaderNames names = eldest.getKey()._names;
+          names._names.remove(eldest.getKey()._className);
+          names._linked.remove(eldest.getKey()._className);
+          _evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    } : null;
+  }
+
+  static NameRegistry fromOptions(AgentOptions options) {
+    return new NameRegistry(options.getInt(MAX_NAMES, 0));
+  }
+
+  /**
+   * @return true if number of names is capped
+   */
+  boolean isBounded() {
+    return _lru != null;
+  }
+
+  void put(ClassLoader loader, String className, CompactName name) {
+    LoaderNames names = loaderNames(loader, true);
+    if (_lru == null) {
+      names._names.put(className, name);
+    } else {
+      synchronized (_lru) {
+        names._names.put(className, name);
+        _lru.put(new NameKey(names, className), Boolean.TRUE);
+      }
+    }
+  }
+
+  CompactName get(ClassLoader loader, String className) {
+    LoaderNames names = loaderNames(loader, false);
+    CompactName name = names != null ? names._names.get(className) : null;
+    if (name != null) {
+      used(names, className);
+    }
+    return name;
+  }
+
+  /**
+   * @param className runtime name of the lambda class
+   */
+  void putLinked(ClassLoader loader, String className, LinkedLambda linked) {
+    LoaderNames names = loaderNames(loader, true);
+    if (_lru == null) {
+      names._linked.put(className, linked);
+    } else {
+      synchronized (_lru) {
+        names._linked.put(className, linked);
+        _lru.put(new NameKey(names, className), Boolean.TRUE);
+      }
+    }
+  }
+
+  LinkedLambda getLinked(ClassLoader loader, String className) {
+    LoaderNames names = loaderNames(loader, false);
+    LinkedLambda linked = names != null ? names._linked.get(className) : null;
+    if (linked != null) {
+      used(names, className);
+    }
+    return linked;
+  }
+
+  /**
+   * @return table in which names of lambdas defined by the class loader intern their symbols
+   */
+  SymbolTable symbols(ClassLoader loader) {
+    return loaderNames(loader, true)._symbols;
+  }
+
+  void putPending(ClassLoader loader, PendingLambda pending) {
+    loaderNames(loader, true)._pending.put(pending.getClassName(), pending);
+  }
+
+  PendingLambda getPending(ClassLoader loader, String className) {
+    LoaderNames names = loaderNames(loader, false);
+    return names != null ? names._pending.get(className) : null;
+  }
+
+  void removePending(ClassLoader loader, PendingLambda pending) {
+    LoaderNames names = loaderNames(loader, false);
+    if (names != null) {
+      names._pending.remove(pending.getClassName(), pending);
+    }
+  }
+
+  /**
+   * @return names by lambda class name, the order of least recently used names is not affected
+   */
+  Map<String, CompactName> getNames() {
+    Map<String, CompactName> names = new HashMap<>();
+    for (LoaderNames loaderNames : loaderNames()) {
+      names.putAll(loaderNames._names);
+    }
+    return names;
+  }
+
+  /**
+   * @return linked lambdas by runtime name of lambda class, the order of least recently used ones is not affected
+   */
+  Map<String, LinkedLambda> getLinked() {
+    Map<String, LinkedLambda> linked = new HashMap<>();
+    for (LoaderNames names : loaderNames()) {
+      linked.putAll(names._linked);
+    }
+    return linked;
+  }
+
+  List<PendingLambda> getPending() {
+    List<PendingLambda> pending = new ArrayList<>();
+    for (LoaderNames names : loaderNames()) {
+      pending.addAll(names._pending.values());
+    }
+    return pending;
+  }
+
+  /**
+   * @return number of names and linked lambdas of class loaders that were not collected
+   */
+  int size() {
+    int size = 0;
+    for (LoaderNames names : loaderNames()) {
+      size += names._names.size() + names._linked.size();
+    }
+    return size;
+  }
+
+  int getLoaders() {
+    synchronized (_byLoader) {
+      return _byLoader.size();
+    }
+  }
+
+  long getEvictions() {
+    return _evictions.sum();
+  }
+
+  private LoaderNames loaderNames(ClassLoader loader, boolean create) {
+    LoaderNames last = _last;
+    if (last != null && loader != null && last._loader.get() == loader) {
+      return last;
+    }
+    LoaderNames names;
+    synchronized (_byLoader) {
+      names = create ? _byLoader.computeIfAbsent(loader, LoaderNames::new) : _byLoader.get(loader);
+    }
+    if (names != null) {
+      _last = names;
+    }
+    return names;
+  }
+
+  private List<LoaderNames> loaderNames() {
+    synchronized (_byLoader) {
+      return new ArrayList<>(_byLoader.values());
+    }
+  }
+
+  /**
+   * Moves name to the end of the order of least recently used names, unless it was evicted in the meantime.
+   */
+  private void used(LoaderNames names, String className) {
+    if (_lru != null) {
+      synchronized (_lru) {
+        _lru.get(new NameKey(names, className));
+      }
+    }
+  }
+
+  /**
+   * Must not strongly reference the class loader, otherwise it would never be collected.
+   */
+  private static class LoaderNames {
+    private final WeakReference<ClassLoader> _loader;
+    private final ConcurrentMap<String, CompactName> _names = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LinkedLambda> _linked = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PendingLambda> _pending = new ConcurrentHashMap<>();
+    private final SymbolTable _symbols = new SymbolTable();
+
+    private LoaderNames(ClassLoader loader) {
+      _loader = new WeakReference<>(loader);
+    }
+  }
+
+  /**
+   * Entry of the LRU order. Keys of collected class loaders are evicted as the least recently used ones.
+   */
+  private static class NameKey {
+
+    private final LoaderNames _names;
+    private final String _className;
+
+    private NameKey(LoaderNames names, String className) {
+      _names = names;
+      _className = className;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(_names) + _className.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof NameKey))
+        return false;
+      NameKey other = (NameKey) obj;
+      return _names == other._names && _className.equals(other._className);
+    }
+  }
+}
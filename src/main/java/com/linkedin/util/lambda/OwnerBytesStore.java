@@ -0,0 +1,92 @@
+package com.linkedin.util.lambda;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps byte code of classes that contain lambdas, captured when they are loaded, so that
+ * they don't have to be read from the class path when their lambdas are analyzed.
+ * Byte code is scoped per class loader and released when it is taken for parsing.
+ */
+class OwnerBytesStore {
+
+  static final String CAPTURE_OWNERS = "captureOwners";
+  static final String CAPTURE_OWNERS_MAX_BYTES = "captureOwnersMaxBytes";
+
+  private static volatile OwnerBytesStore _instance;
+
+  private final long _maxBytes;
+  private final Map<ClassLoader, Map<String, byte[]>> _byteCode = new WeakHashMap<>();
+  private final AtomicLong _bytes = new AtomicLong();
+  private final AtomicLong _skipped = new AtomicLong();
+
+  OwnerBytesStore(long maxBytes) {
+    _maxBytes = maxBytes;
+  }
+
+  /**
+   * @return store or {@code null} if owner classes are not captured
+   */
+  static OwnerBytesStore getInstance() {
+    return _instance;
+  }
+
+  static void configure(AgentOptions options) {
+    if (options.getBoolean(CAPTURE_OWNERS, false)) {
+      _instance = new OwnerBytesStore(options.getLong(CAPTURE_OWNERS_MAX_BYTES, 64 * 1024 * 1024));
+    }
+  }
+
+  /**
+   * Stores byte code if the class contains lambdas or method references.
+   */
+  void offer(ClassLoader loader, String internalName, byte[] byteCode) {
+    if (!ConstantPool.referencesLambdaMetafactory(byteCode)) {
+      return;
+    }
+    if (_bytes.addAndGet(byteCode.length) > _maxBytes) {
+      _bytes.addAndGet(-byteCode.length);
+      _skipped.incrementAndGet();
+      return;
+    }
+    byte[] previous;
+    synchronized (_byteCode) {
+      previous = _byteCode.computeIfAbsent(loader, l -> new HashMap<>()).put(internalName, byteCode);
+    }
+    if (previous != null) {
+      _bytes.addAndGet(-previous.length);
+    }
+  }
+
+  /**
+   * Removes byte code of a class from the store.
+   * @return byte code or {@code null} if it was not captured
+   */
+  byte[] take(ClassLoader loader, String internalName) {
+    byte[] byteCode;
+    synchronized (_byteCode) {
+      Map<String, byte[]> classes = _byteCode.get(loader);
+      if (classes == null) {
+        return null;
+      }
+      byteCode = classes.remove(internalName);
+      if (classes.isEmpty()) {
+        _byteCode.remove(loader);
+      }
+    }
+    if (byteCode != null) {
+      _bytes.addAndGet(-byteCode.length);
+    }
+    return byteCode;
+  }
+
+  long getBytes() {
+    return _bytes.get();
+  }
+
+  long getSkipped() {
+    return _skipped.get();
+  }
+}
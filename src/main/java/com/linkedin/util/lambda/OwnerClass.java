@@ -0,0 +1,64 @@
+package com.linkedin.util.lambda;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Parsed class that owns lambdas: methods with their instructions, line numbers and local variables.
+ */
+class OwnerClass {
+
+  private final String _name;
+  private final List<MethodNode> _methods;
+  private final Map<String, List<MethodNode>> _methodsByName = new HashMap<>();
+  private CallSiteIndex _callSiteIndex;
+
+  OwnerClass(ClassNode classNode) {
+    _name = classNode.name;
+    _methods = classNode.methods;
+    for (MethodNode method : _methods) {
+      _methodsByName.computeIfAbsent(method.name, name -> new ArrayList<>(1)).add(method);
+    }
+  }
+
+  String getName() {
+    return _name;
+  }
+
+  List<MethodNode> getMethods() {
+    return _methods;
+  }
+
+  /**
+   * Index of lambda call sites is built when it is needed for the first time.
+   */
+  synchronized CallSiteIndex getCallSiteIndex() {
+    if (_callSiteIndex == null) {
+      _callSiteIndex = new CallSiteIndex(this);
+    }
+    return _callSiteIndex;
+  }
+
+  /**
+   * @return all overloads of a method with given name
+   */
+  List<MethodNode> getMethods(String name) {
+    return _methodsByName.getOrDefault(name, Collections.emptyList());
+  }
+
+  Optional<MethodNode> getMethod(String name, String desc) {
+    for (MethodNode method : getMethods(name)) {
+      if (method.desc.equals(desc)) {
+        return Optional.of(method);
+      }
+    }
+    return Optional.empty();
+  }
+}
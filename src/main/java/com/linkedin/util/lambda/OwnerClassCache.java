@@ -0,0 +1,165 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * Bounded LRU cache of parsed classes that own lambdas, keyed by class loader and class name.
+ * Class that contains many lambdas is parsed once and then answers all of them.
+ */
+class OwnerClassCache {
+
+  static final String OWNER_CACHE_SIZE = "ownerCacheSize";
+
+  private static volatile OwnerClassCache _instance = new OwnerClassCache(256);
+
+  private final int _maxSize;
+  private final Map<OwnerKey, OwnerClass> _cache;
+  private final LongAdder _hits = new LongAdder();
+  private final LongAdder _misses = new LongAdder();
+  private final LongAdder _evictions = new LongAdder();
+
+  OwnerClassCache(int maxSize) {
+    _maxSize = maxSize;
+    _cache = new LinkedHashMap<OwnerKey, OwnerClass>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<OwnerKey, OwnerClass> eldest) {
+        if (size() > _maxSize) {
+          _evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  static OwnerClassCache getInstance() {
+    return _instance;
+  }
+
+  static void configure(AgentOptions options) {
+    _instance = new OwnerClassCache(options.getInt(OWNER_CACHE_SIZE, 256));
+  }
+
+  /**
+   * @param loader class loader that can see the owner class
+   * @param internalName internal name of the owner class e.g. {@code java/lang/String}
+   */
+  Optional<OwnerClass> get(ClassLoader loader, String internalName) {
+    OwnerKey key = new OwnerKey(loader, internalName);
+    OwnerClass ownerClass;
+    synchronized (_cache) {
+      ownerClass = _cache.get(key);
+    }
+    if (ownerClass != null) {
+      _hits.increment();
+      AnalysisEvents.ownerCacheHit();
+      return Optional.of(ownerClass);
+    }
+    _misses.increment();
+    //parsing happens outside of the lock, concurrent misses of the same class may parse it more than once
+    long start = AgentMetrics.getInstance().phaseStart();
+    Optional<OwnerClass> parsed = parse(loader, internalName);
+    AgentMetrics.getInstance().record(AgentMetrics.Phase.OWNER_PARSE, start);
+    parsed.ifPresent(oc -> {
+      synchronized (_cache) {
+        _cache.put(key, oc);
+      }
+    });
+    return parsed;
+  }
+
+  private Optional<OwnerClass> parse(ClassLoader loader, String internalName) {
+    OwnerBytesStore store = OwnerBytesStore.getInstance();
+    byte[] byteCode = store != null ? store.take(loader, internalName) : null;
+    if (byteCode != null) {
+      return Optional.of(parse(new ClassReader(byteCode)));
+    }
+    String resource = internalName + ".class";
+    AnalysisEvents.ownerRead();
+    try (InputStream is = loader != null ? loader.getResourceAsStream(resource)
+        : ClassLoader.getSystemResourceAsStream(resource)) {
+      if (is == null) {
+        return Optional.empty();
+      }
+      return Optional.of(parse(new ClassReader(is)));
+    } catch (IOException e) {
+      AgentMetrics.getInstance().ownerReadFailure();
+      return Optional.empty();
+    }
+  }
+
+  private static OwnerClass parse(ClassReader reader) {
+    ClassNode classNode = new ClassNode(Opcodes.ASM9);
+    //frames are not needed, debug information is: line numbers and names of variables
+    reader.accept(classNode, ClassReader.SKIP_FRAMES);
+    return new OwnerClass(classNode);
+  }
+
+  long getHits() {
+    return _hits.sum();
+  }
+
+  long getMisses() {
+    return _misses.sum();
+  }
+
+  long getEvictions() {
+    return _evictions.sum();
+  }
+
+  int size() {
+    synchronized (_cache) {
+      return _cache.size();
+    }
+  }
+
+  void clear() {
+    synchronized (_cache) {
+      _cache.clear();
+    }
+  }
+
+  /**
+   * Does not keep class loader alive, entries of collected class loaders
+   * are never matched again and eventually get evicted.
+   */
+  private static class OwnerKey {
+
+    private final WeakReference<ClassLoader> _loader;
+    private final String _name;
+    private final int _hashCode;
+
+    private OwnerKey(ClassLoader loader, String name) {
+      _loader = new WeakReference<>(loader);
+      _name = name;
+      _hashCode = 31 * System.identityHashCode(loader) + name.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof OwnerKey))
+        return false;
+      OwnerKey other = (OwnerKey) obj;
+      return _hashCode == other._hashCode && _name.equals(other._name) && _loader.get() == other._loader.get();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.linkedin.util.lambda;
+
+import java.lang.ref.WeakReference;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lambda class recorded at load time whose analysis is deferred until its name is needed
+ * or until a background worker gets to it. Analysis happens at most once, result is memoized.
+ */
+class PendingLambda {
+
+  private final String _className;
+  private final Optional<SourcePointer> _sourcePointer;
+  private final WeakReference<ClassLoader> _loader;
+  private final CountDownLatch _resolved = new CountDownLatch(1);
+  private byte[] _byteCode;
+  private volatile Optional<String> _name;
+  private LambdaName _lambdaName;
+  private volatile boolean _queued;
+
+  PendingLambda(String className, byte[] byteCode, Optional<SourcePointer> sourcePointer, ClassLoader loader) {
+    _className = className;
+    _byteCode = byteCode;
+    _sourcePointer = sourcePointer;
+    _loader = new WeakReference<>(loader);
+  }
+
+  String getClassName() {
+    return _className;
+  }
+
+  /**
+   * Class loader is weakly referenced, pending lambdas are kept per class loader and must not keep it alive.
+   * @return class loader that defined the lambda or {@code null} if it was collected
+   */
+  ClassLoader getLoader() {
+    return _loader.get();
+  }
+
+  synchronized Optional<String> resolve() {
+    if (_name == null) {
+      try {
+        _lambdaName = NameGenClassVisitor.analyze(_byteCode, _sourcePointer, _loader.get());
+        _name = _lambdaName.getName();
+      } catch (RuntimeException e) {
+        //lambda stays unnamed, threads waiting for it must not be blocked forever
+        AgentMetrics.getInstance().analysisFailure();
+        _name = Optional.empty();
+      }
+      _byteCode = null;
+      _resolved.countDown();
+    }
+    return _name;
+  }
+
+  /**
+   * @return result of analysis or {@code null} if it did not happen or lambda was discarded
+   */
+  synchronized LambdaName getLambdaName() {
+    return _lambdaName;
+  }
+
+  /**
+   * Gives up on naming this lambda, e.g. when it was discarded by an overloaded background worker.
+   */
+  synchronized void discard() {
+    if (_name == null) {
+      _name = Optional.empty();
+      _byteCode = null;
+      _resolved.countDown();
+    }
+  }
+
+  /**
+   * @return name if analysis already happened, {@code null} otherwise
+   */
+  Optional<String> getIfResolved() {
+    return _name;
+  }
+
+  /**
+   * Waits for a background worker to analyze this lambda.
+   * @return name if analysis happened within given time, {@code null} otherwise
+   */
+  Optional<String> await(long timeout, TimeUnit unit) throws InterruptedException {
+    _resolved.await(timeout, unit);
+    return _name;
+  }
+
+  /**
+   * Queued lambdas are analyzed by a background worker, other are analyzed on demand.
+   */
+  boolean isQueued() {
+    return _queued;
+  }
+
+  void setQueued(boolean queued) {
+    _queued = queued;
+  }
+}
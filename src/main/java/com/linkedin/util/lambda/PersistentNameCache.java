@@ -0,0 +1,455 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lambda names computed by earlier runs of JVMs that share a directory, so that a restarted JVM with the same
+ * classes does not analyze their lambdas again. Names are keyed by a hash of the class file of the class that
+ * owns the lambda, so a changed class never hits names of its previous version. Class file is hashed by the agent
+ * when the class is loaded, only if its constant pool references {@code LambdaMetafactory}. Names of classes loaded
+ * before the agent and not retransformed are not cached.
+ * <p>
+ * Directory contains a snapshot {@value #SNAPSHOT} in the {@link MappedNameIndex} format, memory mapped by
+ * every JVM, and journals of names computed since the snapshot was written. Only the snapshot is read when the
+ * agent starts. Each JVM appends to its own journal from a background thread and holds a lock on it while it
+ * writes it. Journal is rotated once it reaches {@value #NAME_CACHE_MAX_BYTES} bytes. Background thread merges
+ * journals that are not locked any more into a new snapshot when the agent starts and after each rotation,
+ * unless another JVM is already doing it, and then reads the most recent journals of other JVMs still running.
+ * Snapshot keeps names of the most recent journals that fit into {@value #NAME_CACHE_MAX_BYTES} bytes, names
+ * of the previous snapshot fill the rest. Snapshot does not record when its names were computed, so which of its
+ * names are dropped when they don't fit is arbitrary. Names are not cached any more once a journal can't be written.
+ */
+class PersistentNameCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PersistentNameCache.class);
+
+  static final String NAME_CACHE_DIR = "nameCacheDir";
+  static final String NAME_CACHE_MAX_BYTES = "nameCacheMaxBytes";
+
+  static final String SNAPSHOT = "lambda-names.idx";
+  private static final String LOCK = "lambda-names.lock";
+  private static final String JOURNAL_PREFIX = "lambda-names-";
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final int QUEUE_SIZE = 4096;
+  //size of an entry of the snapshot besides its key and name
+  private static final int ENTRY_OVERHEAD = 20;
+
+  private static volatile PersistentNameCache _instance;
+
+  private final Path _dir;
+  private final long _maxBytes;
+  private volatile MappedNameIndex _snapshot;
+  //names of journals that are not in the snapshot this JVM mapped
+  private final Map<String, String> _journaled = new ConcurrentHashMap<>();
+  private final Map<ClassLoader, Map<String, Long>> _ownerHashes = new WeakHashMap<>();
+  private final BlockingQueue<String> _queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+  private final LongAdder _hits = new LongAdder();
+  private final LongAdder _misses = new LongAdder();
+  private final LongAdder _dropped = new LongAdder();
+  private volatile boolean _closed;
+
+  PersistentNameCache(Path dir, long maxBytes) throws IOException {
+    _dir = dir;
+    _maxBytes = maxBytes;
+    Files.createDirectories(dir);
+    _snapshot = openSnapshot(dir.resolve(SNAPSHOT));
+  }
+
+  /**
+   * @return cache or {@code null} if names are not cached on disk
+   */
+  static PersistentNameCache getInstance() {
+    return _instance;
+  }
+
+  static void configure(AgentOptions options) {
+    options.getString(NAME_CACHE_DIR).ifPresent(dir -> {
+      try {
+        PersistentNameCache cache = new PersistentNameCache(Paths.get(dir),
+            options.getLong(NAME_CACHE_MAX_BYTES, 16 * 1024 * 1024));
+        cache.start();
+        _instance = cache;
+      } catch (IOException e) {
+        LOGGER.warn("Failed opening lambda name cache in " + dir + ", names will not be cached", e);
+      }
+    });
+  }
+
+  /**
+   * Starts background thread that compacts journals of previous runs, reads journals of running JVMs and then
+   * writes journals of this run.
+   */
+  void start() {
+    Thread thread = new Thread(this::run, "lambda-names-cache");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  Optional<String> get(ClassLoader loader, String hostClass, String implOwner, String implName, String implDesc) {
+    String prefix = keyPrefix(loader, hostClass);
+    return prefix == null ? Optional.empty()
+        : get(prefix + PrecomputedNames.key(hostClass, implOwner, implName, implDesc));
+  }
+
+  /**
+   * @param method name and descriptor of the method that contains the call site
+   * @param site number of the call site within the method
+   */
+  Optional<String> getSite(ClassLoader loader, String hostClass, String method, int site) {
+    String prefix = keyPrefix(loader, hostClass);
+    return prefix == null ? Optional.empty() : get(prefix + PrecomputedNames.siteKey(hostClass, method, site));
+  }
+
+  void put(ClassLoader loader, String hostClass, String implOwner, String implName, String implDesc, String name) {
+    String prefix = keyPrefix(loader, hostClass);
+    if (prefix != null) {
+      put(prefix + PrecomputedNames.key(hostClass, implOwner, implName, implDesc), name);
+    }
+  }
+
+  void putSite(ClassLoader loader, String hostClass, String method, int site, String name) {
+    String prefix = keyPrefix(loader, hostClass);
+    if (prefix != null) {
+      put(prefix + PrecomputedNames.siteKey(hostClass, method, site), name);
+    }
+  }
+
+  /**
+   * Records hash of the class file of a loaded class, classes that don't define lambdas are skipped.
+   */
+  void ownerLoaded(ClassLoader loader, String internalName, byte[] byteCode) {
+    if (loader == null || !ConstantPool.referencesLambdaMetafactory(byteCode)) {
+      return;
+    }
+    long hash = hash(byteCode);
+    synchronized (_ownerHashes) {
+      _ownerHashes.computeIfAbsent(loader, l -> new HashMap<>()).put(internalName, hash);
+    }
+  }
+
+  long getHits() {
+    return _hits.sum();
+  }
+
+  long getMisses() {
+    return _misses.sum();
+  }
+
+  boolean isClosed() {
+    return _closed;
+  }
+
+  /**
+   * @return null if class file of the class was not hashed when it was loaded
+   */
+  private String keyPrefix(ClassLoader loader, String hostClass) {
+    if (loader == null || hostClass == null) {
+      return null;
+    }
+    Long hash;
+    synchronized (_ownerHashes) {
+      Map<String, Long> hashes = _ownerHashes.get(loader);
+      hash = hashes != null ? hashes.get(hostClass) : null;
+    }
+    return hash == null ? null : Long.toHexString(hash) + ' ';
+  }
+
+  Optional<String> get(String key) {
+    String name = _journaled.get(key);
+    MappedNameIndex snapshot = _snapshot;
+    if (name == null && snapshot != null) {
+      int entry = snapshot.find(key);
+      name = entry >= 0 ? snapshot.getName(entry) : null;
+    }
+    if (name == null) {
+      _misses.increment();
+      return Optional.empty();
+    }
+    _hits.increment();
+    return Optional.of(name);
+  }
+
+  /**
+   * Never blocks, name is not cached if background thread does not keep up or if it failed writing a journal.
+   */
+  void put(String key, String name) {
+    if (_closed || key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0 || name.indexOf('\n') >= 0) {
+      return;
+    }
+    if (_journaled.putIfAbsent(key, name) == null && !_queue.offer(key + '\t' + name + '\n')) {
+      _dropped.increment();
+    }
+  }
+
+  private void run() {
+    compactQuietly();
+    loadJournals();
+    try {
+      while (true) {
+        writeJournal();
+        compactQuietly();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOGGER.warn("Failed writing lambda name cache journal in " + _dir + ", names will not be cached", e);
+      _closed = true;
+      _queue.clear();
+    }
+  }
+
+  /**
+   * Writes names to a new journal until it reaches maximum size, then the journal can be compacted.
+   */
+  private void writeJournal() throws IOException, InterruptedException {
+    Path journal = _dir.resolve(JOURNAL_PREFIX + ManagementFactory.getRuntimeMXBean().getName().replace('@', '-')
+        + '-' + System.nanoTime() + JOURNAL_SUFFIX);
+    try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        FileLock lock = channel.lock()) {
+      OutputStream out = Channels.newOutputStream(channel);
+      long bytes = 0;
+      while (bytes < _maxBytes) {
+        //each line is written at once, readers ignore the line being written
+        byte[] line = _queue.take().getBytes(StandardCharsets.UTF_8);
+        out.write(line);
+        bytes += line.length;
+      }
+    }
+  }
+
+  private void compactQuietly() {
+    try {
+      if (compact()) {
+        //names of compacted journals, including the ones of this JVM, are in the new snapshot
+        _snapshot = openSnapshot(_dir.resolve(SNAPSHOT));
+        _journaled.clear();
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed compacting lambda name cache in " + _dir, e);
+    }
+  }
+
+  /**
+   * Reads names of journals of running JVMs, most recent ones first, as long as they fit into the maximum size.
+   */
+  void loadJournals() {
+    List<Path> journals;
+    try {
+      journals = journals(_dir);
+    } catch (IOException e) {
+      LOGGER.debug("Failed listing lambda name cache journals in " + _dir, e);
+      return;
+    }
+    Collections.reverse(journals);
+    long bytes = 0;
+    for (Path journal : journals) {
+      bytes += journal.toFile().length();
+      if (bytes > _maxBytes) {
+        break;
+      }
+      //journal that was compacted by another JVM in the meantime is skipped, its names are in the next snapshot
+      readJournals(Collections.singletonList(journal)).forEach(_journaled::putIfAbsent);
+    }
+  }
+
+  /**
+   * Merges journals of JVMs that are gone into a new snapshot. Journal is known to be finished when its lock
+   * can be acquired, compaction itself is guarded by a lock so that only one JVM does it at a time.
+   * @return true if a new snapshot was written
+   */
+  boolean compact() throws IOException {
+    try (FileChannel lockChannel = FileChannel.open(_dir.resolve(LOCK), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE); FileLock lock = tryLock(lockChannel)) {
+      if (lock == null) {
+        return false;
+      }
+      List<FileChannel> finished = new ArrayList<>();
+      List<Path> finishedPaths = new ArrayList<>();
+      try {
+        for (Path journal : journals(_dir)) {
+          FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE);
+          if (tryLock(channel) != null) {
+            finished.add(channel);
+            finishedPaths.add(journal);
+          } else {
+            channel.close();
+          }
+        }
+        if (finishedPaths.isEmpty()) {
+          return false;
+        }
+        writeSnapshot(merge(finishedPaths));
+        for (Path journal : finishedPaths) {
+          Files.deleteIfExists(journal);
+        }
+        return true;
+      } finally {
+        for (FileChannel channel : finished) {
+          channel.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return {@code null} if the file is locked by another JVM or by another cache in this JVM
+   */
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return names of the previous snapshot followed by names of journals from the least to the most recently
+   * written, bounded by maximum size of the snapshot
+   */
+  private List<Map.Entry<String, String>> merge(List<Path> journals) throws IOException {
+    //snapshot is older than any journal, journals are ordered by their last modification,
+    //names of the snapshot are in the order of its index since it does not keep when they were computed
+    Map<String, String> names = new LinkedHashMap<>();
+    MappedNameIndex snapshot = openSnapshot(_dir.resolve(SNAPSHOT));
+    if (snapshot != null) {
+      for (int i = 0; i < snapshot.size(); i++) {
+        names.put(snapshot.getKey(i), snapshot.getName(i));
+      }
+    }
+    for (Path journal : journals) {
+      for (Map.Entry<String, String> entry : readJournals(Collections.singletonList(journal)).entrySet()) {
+        names.remove(entry.getKey());
+        names.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<Map.Entry<String, String>> merged = new ArrayList<>(names.entrySet());
+    long bytes = 0;
+    int first = merged.size();
+    while (first > 0) {
+      Map.Entry<String, String> entry = merged.get(first - 1);
+      bytes += ENTRY_OVERHEAD + MappedNameIndex.encodeKey(entry.getKey()).length
+          + entry.getValue().getBytes(StandardCharsets.UTF_8).length;
+      if (bytes > _maxBytes) {
+        break;
+      }
+      first--;
+    }
+    return merged.subList(first, merged.size());
+  }
+
+  /**
+   * Snapshot is replaced atomically, JVMs that mapped the previous one keep reading it.
+   */
+  private void writeSnapshot(List<Map.Entry<String, String>> names) throws IOException {
+    Map<String, String> index = new HashMap<>();
+    for (Map.Entry<String, String> entry : names) {
+      index.put(entry.getKey(), entry.getValue());
+    }
+    Path tmp = Files.createTempFile(_dir, SNAPSHOT, ".tmp");
+    try {
+      try (OutputStream os = Files.newOutputStream(tmp)) {
+        MappedNameIndex.write(index, os);
+      }
+      Files.move(tmp, _dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static MappedNameIndex openSnapshot(Path snapshot) {
+    if (!Files.exists(snapshot)) {
+      return null;
+    }
+    try {
+      return MappedNameIndex.open(snapshot);
+    } catch (IOException | IllegalArgumentException e) {
+      LOGGER.warn("Ignoring unreadable lambda name cache snapshot " + snapshot, e);
+      return null;
+    }
+  }
+
+  /**
+   * @return journals ordered by last modification
+   */
+  private static List<Path> journals(Path dir) throws IOException {
+    List<Path> journals = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+      files.forEach(journals::add);
+    }
+    Map<Path, Long> modified = new HashMap<>();
+    for (Path journal : journals) {
+      modified.put(journal, journal.toFile().lastModified());
+    }
+    journals.sort(Comparator.comparing(modified::get));
+    return journals;
+  }
+
+  /**
+   * Reads lines {@code key '\t' name '\n'}, unterminated last line may still be being written and is ignored.
+   */
+  private static Map<String, String> readJournals(List<Path> journals) {
+    Map<String, String> names = new LinkedHashMap<>();
+    for (Path journal : journals) {
+      byte[] bytes;
+      try {
+        bytes = Files.readAllBytes(journal);
+      } catch (IOException e) {
+        //journal was compacted by another JVM in the meantime
+        continue;
+      }
+      int start = 0;
+      for (int i = 0; i < bytes.length; i++) {
+        if (bytes[i] == '\n') {
+          String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+          int tab = line.indexOf('\t');
+          if (tab > 0) {
+            names.put(line.substring(0, tab), line.substring(tab + 1));
+          }
+          start = i + 1;
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * 64 bit FNV-1a hash.
+   */
+  static long hash(byte[] bytes) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+}
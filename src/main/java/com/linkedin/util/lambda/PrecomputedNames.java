@@ -0,0 +1,163 @@
+package com.linkedin.util.lambda;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lambda names computed at build time by {@link LambdaNameIndexer}, read from {@value #RESOURCE}
+ * resources visible to a class loader. Resources are read once per class loader, when the first
+ * lambda defined by it is analyzed. Names are looked up first in a memory mapped
+ * binary index, if one is configured, then among names found by {@link ClasspathWarmUp}.
+ */
+class PrecomputedNames {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrecomputedNames.class);
+
+  static final String RESOURCE = "META-INF/lambda-names";
+  static final String PRECOMPUTED_NAMES = "precomputedNames";
+  static final String PRECOMPUTED_INDEX = "precomputedIndex";
+
+  private static volatile boolean _enabled = true;
+  private static volatile MappedNameIndex _mappedIndex;
+  private static final Map<ClassLoader, Map<String, String>> _names = new WeakHashMap<>();
+  //filled by a running warm up, apply only to lambdas of the class loader that loads the class path
+  private static final Map<String, String> _warmedUp = new ConcurrentHashMap<>();
+  private static volatile WeakReference<ClassLoader> _warmedUpLoader = new WeakReference<>(null);
+
+  private PrecomputedNames() {
+  }
+
+  static void configure(AgentOptions options) {
+    _enabled = options.getBoolean(PRECOMPUTED_NAMES, true);
+    options.getString(PRECOMPUTED_INDEX).ifPresent(file -> {
+      try {
+        _mappedIndex = MappedNameIndex.open(Paths.get(file));
+      } catch (IOException | IllegalArgumentException e) {
+        LOGGER.warn("Failed mapping lambda name index " + file, e);
+      }
+    });
+  }
+
+  /**
+   * @param hostClass internal name of the class in which lambda was created
+   */
+  static Optional<String> get(ClassLoader loader, String hostClass, String implOwner, String implName,
+      String implDesc) {
+    if (!_enabled || loader == null) {
+      return Optional.empty();
+    }
+    MappedNameIndex mappedIndex = _mappedIndex;
+    if (mappedIndex != null) {
+      int entry = mappedIndex.find(hostClass, implOwner, implName, implDesc);
+      if (entry >= 0) {
+        return Optional.of(mappedIndex.getName(entry));
+      }
+    }
+    if (isWarmedUp(loader)) {
+      String name = _warmedUp.get(key(hostClass, implOwner, implName, implDesc));
+      if (name != null) {
+        return Optional.of(name);
+      }
+    }
+    Map<String, String> names;
+    synchronized (_names) {
+      names = _names.get(loader);
+    }
+    if (names == null) {
+      //jars are scanned without the lock so that lookups of other class loaders don't wait for it,
+      //threads racing on the first lookup of a loader may each scan them, the first one to finish wins
+      Map<String, String> loaded = load(loader);
+      synchronized (_names) {
+        names = _names.putIfAbsent(loader, loaded);
+      }
+      if (names == null) {
+        names = loaded;
+      }
+    }
+    return Optional.ofNullable(names.get(key(hostClass, implOwner, implName, implDesc)));
+  }
+
+  /**
+   * Looks up lambda linked through rewritten bootstraps, only names found by {@link ClasspathWarmUp}
+   * are keyed by call site.
+   * @param method name and descriptor of the method that contains the call site
+   * @param site number of the call site within the method
+   */
+  static Optional<String> getSite(ClassLoader loader, String hostClass, String method, int site) {
+    if (!_enabled || !isWarmedUp(loader)) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(_warmedUp.get(siteKey(hostClass, method, site)));
+  }
+
+  static String key(String hostClass, String implOwner, String implName, String implDesc) {
+    return hostClass + ' ' + implOwner + '.' + implName + implDesc;
+  }
+
+  static String siteKey(String hostClass, String method, int site) {
+    return hostClass + ' ' + method + '#' + site;
+  }
+
+  /**
+   * @param loader class loader that loads classes scanned by the warm up
+   */
+  static void warmUp(ClassLoader loader) {
+    _warmedUpLoader = new WeakReference<>(loader);
+  }
+
+  static void putWarmedUp(Map<String, String> names) {
+    _warmedUp.putAll(names);
+  }
+
+  private static boolean isWarmedUp(ClassLoader loader) {
+    return loader != null && !_warmedUp.isEmpty() && loader == _warmedUpLoader.get();
+  }
+
+  private static Map<String, String> load(ClassLoader loader) {
+    Map<String, String> names = new HashMap<>();
+    try {
+      Enumeration<URL> resources = loader.getResources(RESOURCE);
+      while (resources.hasMoreElements()) {
+        URL url = resources.nextElement();
+        try (InputStream is = url.openStream()) {
+          read(is, names);
+        } catch (IOException e) {
+          LOGGER.warn("Failed reading lambda names from " + url, e);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed listing " + RESOURCE + " resources", e);
+    }
+    return names.isEmpty() ? Collections.emptyMap() : names;
+  }
+
+  /**
+   * Reads index written by {@link LambdaNameIndexer#write(java.io.OutputStream)}.
+   */
+  static void read(InputStream is, Map<String, String> names) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      int tab = line.indexOf('\t');
+      if (tab > 0) {
+        names.put(line.substring(0, tab), line.substring(tab + 1));
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.linkedin.util.lambda;
+
+import java.util.Arrays;
+
+/**
+ * Set of class name prefixes matched without allocation. Names can be given in either binary
+ * ({@code com.example.Foo}) or internal ({@code com/example/Foo}) form, separators are treated as equal.
+ */
+class PrefixTrie {
+
+  private final Node _root = new Node();
+  private boolean _empty = true;
+
+  void add(String prefix) {
+    Node node = _root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.child(normalize(prefix.charAt(i)), true);
+    }
+    node._terminal = true;
+    _empty = false;
+  }
+
+  boolean isEmpty() {
+    return _empty;
+  }
+
+  /**
+   * @return true if any of the prefixes is a prefix of given name
+   */
+  boolean matches(String name) {
+    return matches(name, 0, name.length());
+  }
+
+  /**
+   * Matches a prefix of the region of name between start and end.
+   */
+  boolean matches(String name, int start, int end) {
+    Node node = _root;
+    for (int i = start; !node._terminal; i++) {
+      if (i == end) {
+        return false;
+      }
+      node = node.child(normalize(name.charAt(i)), false);
+      if (node == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char normalize(char c) {
+    return c == '.' ? '/' : c;
+  }
+
+  /**
+   * Packages have few distinct next characters, children are searched linearly.
+   */
+  private static class Node {
+
+    private char[] _keys = new char[0];
+    private Node[] _children = new Node[0];
+    private boolean _terminal;
+
+    private Node child(char c, boolean create) {
+      for (int i = 0; i < _keys.length; i++) {
+        if (_keys[i] == c) {
+          return _children[i];
+        }
+      }
+      if (!create) {
+        return null;
+      }
+      Node child = new Node();
+      _keys = Arrays.copyOf(_keys, _keys.length + 1);
+      _children = Arrays.copyOf(_children, _children.length + 1);
+      _keys[_keys.length - 1] = c;
+      _children[_children.length - 1] = child;
+      return child;
+    }
+  }
+}
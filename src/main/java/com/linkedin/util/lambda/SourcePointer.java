@@ -9,23 +9,44 @@ class SourcePointer {
   final String _methodName;
   final int _lineNumber;
 
-  private SourcePointer(String className, String methodName, Integer lineNumber) {
+  SourcePointer(String className, String methodName, int lineNumber) {
     _className = className;
     _methodName = methodName;
     _lineNumber = lineNumber;
   }
 
+  /**
+   * Returns source pointer of the code that caused lambda class to be created: first stack frame
+   * that does not belong to the agent, JDK or ASM.
+   */
   static Optional<SourcePointer> get() {
+    long start = AgentMetrics.getInstance().phaseStart();
+    Optional<SourcePointer> sourcePointer = CallSiteLocator.locate();
+    AgentMetrics.getInstance().record(AgentMetrics.Phase.STACK_CAPTURE, start);
+    return sourcePointer;
+  }
+
+  /**
+   * Finds source pointer by filling in the whole stack trace, used on JDK 8.
+   */
+  static Optional<SourcePointer> fromStackTrace() {
     return Arrays.stream(new Exception().getStackTrace()).filter(SourcePointer::notLambdaStuff).findFirst()
         .map(SourcePointer::sourcePointer);
   }
 
   private static boolean notLambdaStuff(StackTraceElement element) {
-    return !(element.getClassName().startsWith("java.") || element.getClassName().startsWith("sun.")
-        || element.getClassName().startsWith(NameGenClassVisitor.class.getName())
-        || element.getClassName().startsWith(LambdaNamesAgent.class.getName())
-        || element.getClassName().startsWith(SourcePointer.class.getName())
-        || element.getClassName().startsWith("org.objectweb.asm."));
+    return !isLambdaStuff(element.getClassName());
+  }
+
+  static boolean isLambdaStuff(String className) {
+    return className.startsWith("java.") || className.startsWith("sun.") || className.startsWith("jdk.")
+        || className.startsWith(NameGenClassVisitor.class.getName())
+        || className.startsWith(NameGenMethodVisitor.class.getName())
+        || className.startsWith(LambdaNamesAgent.class.getName())
+        || className.startsWith(SourcePointer.class.getName())
+        || className.startsWith(CallSiteLocator.class.getName())
+        || className.startsWith(AgentMetrics.class.getName())
+        || className.startsWith("org.objectweb.asm.");
   }
 
   private static SourcePointer sourcePointer(StackTraceElement stackTraceElement) {
@@ -35,8 +56,11 @@ class SourcePointer {
 
   @Override
   public String toString() {
-    return _methodName + "(" + Util.extractSimpleName(_className, ".") + (_lineNumber > 0 ? ":" + _lineNumber : "")
-        + ")";
+    return format(_methodName, Util.extractSimpleName(_className, "."), _lineNumber);
+  }
+
+  static String format(String methodName, String simpleClassName, int lineNumber) {
+    return methodName + "(" + simpleClassName + (lineNumber > 0 ? ":" + lineNumber : "") + ")";
   }
 
   @Override
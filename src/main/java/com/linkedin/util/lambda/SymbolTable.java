@@ -0,0 +1,44 @@
+package com.linkedin.util.lambda;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns strings that repeat across lambda names, e.g. class and method names, as int ids.
+ * Symbols are never removed, tables are kept per class loader and released with it.
+ */
+class SymbolTable {
+
+  private final ConcurrentMap<String, Integer> _ids = new ConcurrentHashMap<>();
+  private volatile String[] _symbols = new String[256];
+  private int _size;
+
+  int intern(String symbol) {
+    Integer id = _ids.get(symbol);
+    if (id != null) {
+      return id;
+    }
+    synchronized (this) {
+      id = _ids.get(symbol);
+      if (id == null) {
+        if (_size == _symbols.length) {
+          _symbols = Arrays.copyOf(_symbols, _size * 2);
+        }
+        _symbols[_size] = symbol;
+        id = _size++;
+        //symbol is stored before its id is published
+        _ids.put(symbol, id);
+      }
+      return id;
+    }
+  }
+
+  String get(int id) {
+    return _symbols[id];
+  }
+
+  int size() {
+    return _ids.size();
+  }
+}
@@ -1,5 +1,9 @@
 package com.linkedin.util.lambda;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
 class Util {
   static String extractSimpleName(String fqcn, String separator) {
     if (fqcn.contains(separator)) {
@@ -8,4 +12,20 @@ class Util {
       return fqcn;
     }
   }
+
+  /**
+   * Reads the stream to its end, e.g. a class file, without closing it.
+   */
+  static byte[] readFully(InputStream is) throws IOException {
+    byte[] buffer = new byte[Math.max(is.available(), 4096)];
+    int length = 0;
+    int read;
+    while ((read = is.read(buffer, length, buffer.length - length)) >= 0) {
+      length += read;
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+    }
+    return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+  }
 }
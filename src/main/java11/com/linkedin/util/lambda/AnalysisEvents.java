@@ -0,0 +1,90 @@
+package com.linkedin.util.lambda;
+
+import jdk.jfr.EventType;
+
+/**
+ * Records analyses of lambda classes as {@link LambdaAnalysisEvent}. Event of the analysis in progress
+ * is kept in a thread local, analysis may trigger loading of other lambda classes so analyses can nest.
+ * When the event is disabled nothing is allocated.
+ */
+class AnalysisEvents {
+
+  private static final EventType TYPE = EventType.getEventType(LambdaAnalysisEvent.class);
+  private static final ThreadLocal<LambdaAnalysisEvent> CURRENT = new ThreadLocal<>();
+
+  private AnalysisEvents() {
+  }
+
+  static boolean isEnabled() {
+    return TYPE.isEnabled();
+  }
+
+  static Object begin() {
+    if (!TYPE.isEnabled()) {
+      return null;
+    }
+    LambdaAnalysisEvent event = new LambdaAnalysisEvent();
+    event.outer = CURRENT.get();
+    CURRENT.set(event);
+    event.begin();
+    return event;
+  }
+
+  static void phase(AgentMetrics.Phase phase, long nanos) {
+    LambdaAnalysisEvent event = current();
+    if (event != null) {
+      switch (phase) {
+        case STACK_CAPTURE:
+          event.stackCapture += nanos;
+          break;
+        case OWNER_PARSE:
+          event.ownerParse += nanos;
+          break;
+        case FINDER_SCAN:
+          event.finderScan += nanos;
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  static void ownerCacheHit() {
+    LambdaAnalysisEvent event = current();
+    if (event != null) {
+      event.ownerCacheHits++;
+    }
+  }
+
+  static void ownerRead() {
+    LambdaAnalysisEvent event = current();
+    if (event != null) {
+      event.ownerReads++;
+    }
+  }
+
+  static void end(Object token, String lambdaClass, String ownerClass, LambdaName lambdaName) {
+    if (token != null) {
+      LambdaAnalysisEvent event = (LambdaAnalysisEvent) token;
+      event.end();
+      if (event.outer != null) {
+        CURRENT.set(event.outer);
+      } else {
+        CURRENT.remove();
+      }
+      if (event.shouldCommit()) {
+        event.lambdaClass = lambdaClass;
+        event.ownerClass = ownerClass;
+        event.name = lambdaName != null ? lambdaName.getName().orElse(null) : null;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Thread local is not touched unless the event is enabled.
+   */
+  private static LambdaAnalysisEvent current() {
+    return TYPE.isEnabled() ? CURRENT.get() : null;
+  }
+}
@@ -0,0 +1,45 @@
+package com.linkedin.util.lambda;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Reads stack traces of events of JDK Flight Recorder recordings one event at a time, recordings of any size
+ * are streamed. There is no JDK 8 version of this class, {@link LambdaSymbolizer} calls it through reflection
+ * once it checked that it runs on JDK 11 or later.
+ */
+class JfrStacks {
+
+  private JfrStacks() {
+  }
+
+  static void read(Path recording, String eventType, ObjLongConsumer<String> stacks) throws IOException {
+    StringBuilder stack = new StringBuilder();
+    try (RecordingFile file = new RecordingFile(recording)) {
+      while (file.hasMoreEvents()) {
+        RecordedEvent event = file.readEvent();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || !event.getEventType().getName().equals(eventType)) {
+          continue;
+        }
+        stack.setLength(0);
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = frames.size() - 1; i >= 0; i--) {
+          RecordedFrame frame = frames.get(i);
+          if (stack.length() > 0) {
+            stack.append(';');
+          }
+          stack.append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName());
+        }
+        stacks.accept(stack.toString(), 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.linkedin.util.lambda;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Analysis of a single lambda class. Disabled by default, enable it with
+ * {@code com.linkedin.util.lambda.LambdaAnalysis#enabled=true} in JFR settings.
+ */
+@Name("com.linkedin.util.lambda.LambdaAnalysis")
+@Label("Lambda Analysis")
+@Category({"Lambda Names"})
+@Description("Analysis of a lambda class by the lambda names agent")
+@Enabled(false)
+@StackTrace(false)
+class LambdaAnalysisEvent extends Event {
+
+  @Label("Lambda Class")
+  String lambdaClass;
+
+  @Label("Owner Class")
+  @Description("Class in which lambda was created")
+  String ownerClass;
+
+  @Label("Name")
+  String name;
+
+  @Label("Stack Capture")
+  @Timespan(Timespan.NANOSECONDS)
+  long stackCapture;
+
+  @Label("Owner Parse")
+  @Timespan(Timespan.NANOSECONDS)
+  long ownerParse;
+
+  @Label("Finder Scan")
+  @Timespan(Timespan.NANOSECONDS)
+  long finderScan;
+
+  @Label("Owner Reads")
+  @Description("Number of times class that owns the lambda was read from the class path")
+  int ownerReads;
+
+  @Label("Owner Cache Hits")
+  int ownerCacheHits;
+
+  /**
+   * Analysis that was in progress on the same thread when this one began.
+   */
+  transient LambdaAnalysisEvent outer;
+}
@@ -0,0 +1,22 @@
+package com.linkedin.util.lambda;
+
+import java.util.Optional;
+
+/**
+ * Locates code that caused lambda class to be created. Frames are walked lazily and walking stops
+ * at the first frame that does not belong to the agent, JDK or ASM, remaining frames are never materialized.
+ */
+class CallSiteLocator {
+
+  private static final StackWalker WALKER = StackWalker.getInstance();
+
+  private CallSiteLocator() {
+  }
+
+  static Optional<SourcePointer> locate() {
+    return WALKER.walk(frames -> frames
+        .filter(frame -> !SourcePointer.isLambdaStuff(frame.getClassName()))
+        .findFirst()
+        .map(frame -> new SourcePointer(frame.getClassName(), frame.getMethodName(), frame.getLineNumber())));
+  }
+}
@@ -0,0 +1,65 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.testng.annotations.Test;
+
+public class TestAgentMetrics {
+
+  static {
+    LambdaNames.initialize(LambdaNamesAgent.RETRANSFORM_LOADED + "=true");
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    histogram.record(10000);
+    assertEquals(histogram.getCount(), 101);
+    assertEquals(histogram.getMax(), 10000);
+    //51st value falls into [32, 63] bucket
+    assertEquals(histogram.getPercentile(0.5), 63);
+    assertEquals(histogram.getPercentile(1), 10000);
+    assertEquals(new Histogram().getPercentile(0.99), 0);
+  }
+
+  @Test
+  public void testNothingIsMeasuredWhenDisabled() {
+    AgentMetrics metrics = new AgentMetrics();
+    metrics.setEnabled(false);
+    assertEquals(metrics.phaseStart(), AgentMetrics.NOT_TIMED);
+    assertEquals(metrics.allocatedBytes(), -1);
+    metrics.record(AgentMetrics.Phase.ANALYSIS, System.nanoTime());
+    metrics.recordAllocation(0);
+    assertEquals(metrics.getPhase(AgentMetrics.Phase.ANALYSIS).getCount(), 0);
+    assertEquals(metrics.getAnalysisAllocatedBytes().get("count").longValue(), 0);
+  }
+
+  @Test
+  public void testMBeanIsRegistered() throws Exception {
+    Function<String, Integer> f = String::length;
+    assertTrue(LambdaNames.getLambdaName(f).isPresent());
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(AgentMetrics.OBJECT_NAME);
+    assertTrue((Long) server.getAttribute(name, "LambdaClasses") > 0);
+    assertTrue((Long) server.getAttribute(name, "NamesProduced") > 0);
+    assertTrue((Integer) server.getAttribute(name, "RegistrySize") > 0);
+    TabularData analysis = (TabularData) server.getAttribute(name, "AnalysisNanos");
+    CompositeData count = analysis.get(new Object[] {"count"});
+    assertTrue((Long) count.get("value") > 0);
+    //allocation per analyzed lambda is tracked to catch regressions
+    TabularData allocated = (TabularData) server.getAttribute(name, "AnalysisAllocatedBytes");
+    assertTrue((Long) allocated.get(new Object[] {"count"}).get("value") > 0);
+  }
+}
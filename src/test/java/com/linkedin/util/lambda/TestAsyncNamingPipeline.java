@@ -0,0 +1,105 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.util.lambda.AsyncNamingPipeline.OverflowPolicy;
+
+public class TestAsyncNamingPipeline {
+
+  private static final String HOST = "com/linkedin/util/lambda/TestPendingLambda";
+
+  private static PendingLambda pending(int index) {
+    String className = HOST + "$$Lambda$" + (100 + index);
+    return new PendingLambda(className.replace('/', '.'), TestPendingLambda.lambdaClass(className), Optional.empty(),
+        TestAsyncNamingPipeline.class.getClassLoader());
+  }
+
+  /**
+   * Worker analyzes the first lambda, which is blocked until the test releases it, second one fills the queue
+   * and the third one overflows.
+   */
+  private static PendingLambda[] overflow(AsyncNamingPipeline pipeline, PendingLambda first) {
+    PendingLambda second = pending(2);
+    PendingLambda third = pending(3);
+    pipeline.submit(first);
+    pipeline.submit(second);
+    pipeline.submit(third);
+    return new PendingLambda[] {second, third};
+  }
+
+  @Test
+  public void testLazyOverflow() throws Exception {
+    AsyncNamingPipeline pipeline = new AsyncNamingPipeline(1, 1, OverflowPolicy.LAZY);
+    PendingLambda first = pending(1);
+    PendingLambda[] pending;
+    synchronized (first) {
+      pending = overflow(pipeline, first);
+      assertFalse(pending[1].isQueued());
+      assertNull(pending[1].getIfResolved());
+      //queued lambda is not analyzed in time
+      assertTrue(pending[0].isQueued());
+      assertNull(pending[0].await(10, TimeUnit.MILLISECONDS));
+    }
+    assertTrue(pending[0].await(10, TimeUnit.SECONDS).isPresent());
+    //overflown lambda is analyzed when its name is requested
+    assertTrue(pending[1].resolve().isPresent());
+    assertEquals(pipeline.getOverflows(), 1);
+  }
+
+  @Test
+  public void testInlineOverflow() throws Exception {
+    AsyncNamingPipeline pipeline = new AsyncNamingPipeline(1, 1, OverflowPolicy.INLINE);
+    PendingLambda first = pending(1);
+    synchronized (first) {
+      PendingLambda[] pending = overflow(pipeline, first);
+      assertTrue(pending[1].getIfResolved().isPresent());
+      assertNull(pending[0].getIfResolved());
+    }
+    assertEquals(pipeline.getOverflows(), 1);
+  }
+
+  @Test
+  public void testDiscardOverflow() throws Exception {
+    AsyncNamingPipeline pipeline = new AsyncNamingPipeline(1, 1, OverflowPolicy.DISCARD);
+    PendingLambda first = pending(1);
+    synchronized (first) {
+      PendingLambda[] pending = overflow(pipeline, first);
+      assertEquals(pending[1].getIfResolved(), Optional.empty());
+      //threads waiting for a discarded lambda are not blocked
+      assertEquals(pending[1].await(10, TimeUnit.SECONDS), Optional.empty());
+    }
+    assertEquals(pipeline.getOverflows(), 1);
+  }
+
+  @Test
+  public void testBlockOverflow() throws Exception {
+    AsyncNamingPipeline pipeline = new AsyncNamingPipeline(1, 1, OverflowPolicy.BLOCK);
+    PendingLambda first = pending(1);
+    PendingLambda[][] pending = new PendingLambda[1][];
+    Thread loading;
+    synchronized (first) {
+      loading = new Thread(() -> pending[0] = overflow(pipeline, first));
+      loading.start();
+      loading.join(100);
+      assertTrue(loading.isAlive());
+    }
+    loading.join(10000);
+    assertFalse(loading.isAlive());
+    assertTrue(pending[0][1].await(10, TimeUnit.SECONDS).isPresent());
+    assertEquals(pipeline.getOverflows(), 1);
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class},
+      expectedExceptionsMessageRegExp = "Invalid value of agent option overflow: drop")
+  public void testInvalidOverflowPolicy() {
+    AsyncNamingPipeline.fromOptions(AgentOptions.parse("overflow=drop"));
+  }
+}
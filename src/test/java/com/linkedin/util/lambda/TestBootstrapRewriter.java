@@ -0,0 +1,164 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+public class TestBootstrapRewriter {
+
+  /**
+   * Loaded from rewritten byte code by {@link RewritingLoader}.
+   */
+  public static class Host {
+
+    static String value() {
+      return "";
+    }
+
+    public static Supplier<String> methodRef() {
+      return Host::value;
+    }
+
+    public static Supplier<String> capturing(String s) {
+      return () -> Host.value() + s;
+    }
+
+    public static Supplier<String> primitives(Integer i, Long l, Double d, String s) {
+      int x = i;
+      long y = l;
+      double z = d;
+      boolean empty = s.isEmpty();
+      char c = s.charAt(0);
+      return () -> "" + x + y + z + empty + c;
+    }
+
+    public static Supplier<String> bound(String s) {
+      //receiver is checked for null before the call site
+      return s::trim;
+    }
+  }
+
+  private static class RewritingLoader extends ClassLoader {
+
+    private final URL _names;
+
+    /**
+     * @param names {@value PrecomputedNames#RESOURCE} resource of the loader, may be {@code null}
+     */
+    private RewritingLoader(URL names) {
+      super(TestBootstrapRewriter.class.getClassLoader());
+      _names = names;
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) throws IOException {
+      return name.equals(PrecomputedNames.RESOURCE) && _names != null
+          ? Collections.enumeration(Collections.singletonList(_names)) : super.findResources(name);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.equals(Host.class.getName())) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loaded = findLoadedClass(name);
+        if (loaded == null) {
+          byte[] byteCode = new BootstrapRewriter().rewrite(this, name.replace('.', '/'),
+              TestBootstrapRewriter.class.getProtectionDomain(), bytes(name));
+          loaded = defineClass(name, byteCode, 0, byteCode.length);
+        }
+        return loaded;
+      }
+    }
+  }
+
+  static byte[] bytes(String className) {
+    try (InputStream is = TestBootstrapRewriter.class.getClassLoader()
+        .getResourceAsStream(className.replace('.', '/') + ".class")) {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = is.read(buffer)) != -1) {
+        os.write(buffer, 0, n);
+      }
+      return os.toByteArray();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Supplier<String> lambda(String factory, Object... args) throws Exception {
+    return lambda(null, factory, args);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Supplier<String> lambda(URL names, String factory, Object... args) throws Exception {
+    Class<?> host = new RewritingLoader(names).loadClass(Host.class.getName());
+    Class<?>[] types = new Class<?>[args.length];
+    for (int i = 0; i < args.length; i++) {
+      types[i] = args[i].getClass();
+    }
+    return (Supplier<String>) host.getMethod(factory, types).invoke(null, args);
+  }
+
+  @Test
+  public void testMethodRefIsNamed() throws Exception {
+    Supplier<String> lambda = lambda("methodRef");
+    assertEquals(lambda.get(), "");
+    Optional<String> name = LambdaNames.getLambdaName(lambda);
+    assertEquals(name.get(), "TestBootstrapRewriter$Host::value methodRef(TestBootstrapRewriter$Host:33)");
+  }
+
+  @Test
+  public void testIndexedNameIsUsed() throws Exception {
+    String hostClass = Host.class.getName().replace('.', '/');
+    Path names = Files.createTempFile("lambda-names", ".txt");
+    Files.write(names, (PrecomputedNames.key(hostClass, hostClass, "value", "()Ljava/lang/String;") + "\tindexed\n")
+        .getBytes(StandardCharsets.UTF_8));
+    Supplier<String> lambda = lambda(names.toUri().toURL(), "methodRef");
+    assertEquals(LambdaNames.getLambdaName(lambda).get(), "indexed");
+  }
+
+  @Test
+  public void testCapturingLambdaIsNamed() throws Exception {
+    Supplier<String> lambda = lambda("capturing", "x");
+    assertEquals(lambda.get(), "x");
+    assertNotNull(LambdaNames.getLambdaNameOrNull(lambda));
+  }
+
+  @Test
+  public void testLambdaCapturingPrimitivesIsNamed() throws Exception {
+    Supplier<String> lambda = lambda("primitives", 1, 2L, 3.0, "x");
+    assertEquals(lambda.get(), "123.0falsex");
+    assertNotNull(LambdaNames.getLambdaNameOrNull(lambda));
+  }
+
+  @Test
+  public void testBoundMethodRefIsNamed() throws Exception {
+    Supplier<String> lambda = lambda("bound", " x ");
+    assertEquals(lambda.get(), "x");
+    assertEquals(LambdaNames.getLambdaName(lambda).get(), "s::trim bound(TestBootstrapRewriter$Host:51)");
+  }
+
+  @Test
+  public void testClassWithoutLambdasIsNotRewritten() {
+    assertNull(new BootstrapRewriter().rewrite(getClass().getClassLoader(), "com/linkedin/util/lambda/LambdaName",
+        getClass().getProtectionDomain(), bytes(LambdaName.class.getName())));
+  }
+}
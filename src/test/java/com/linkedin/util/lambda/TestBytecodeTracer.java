@@ -0,0 +1,83 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+public class TestBytecodeTracer {
+
+  private static final String CLASS_NAME = "com/linkedin/util/lambda/TestBytecodeTracer$$Lambda$1";
+
+  @Test
+  public void testWritesDisassembledByteCode() throws Exception {
+    File file = Files.createTempDirectory("lambda-names").resolve("trace.txt").toFile();
+    BytecodeTracer tracer = new BytecodeTracer(file, 1024 * 1024, 2, 16);
+    tracer.start();
+    tracer.trace(TestPendingLambda.lambdaClass(CLASS_NAME));
+    await(file);
+    String trace = read(file.toPath());
+    assertTrue(trace.contains("class " + CLASS_NAME), trace);
+    assertTrue(trace.contains("INVOKESTATIC com/linkedin/util/lambda/TestPendingLambda.value"), trace);
+  }
+
+  @Test
+  public void testRotatesFiles() throws Exception {
+    File file = Files.createTempDirectory("lambda-names").resolve("trace.txt").toFile();
+    //each trace is bigger than a file, each one is written to a new file
+    BytecodeTracer tracer = new BytecodeTracer(file, 1, 2, 16);
+    tracer.start();
+    for (int i = 1; i <= 4; i++) {
+      tracer.trace(TestPendingLambda.lambdaClass(CLASS_NAME.replace("$1", "$" + i)));
+    }
+    File second = new File(file.getPath() + ".2");
+    await(second);
+    for (int i = 0; i < 1000 && !read(file.toPath()).contains("$$Lambda$4"); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(read(file.toPath()).contains("$$Lambda$4"));
+    assertTrue(read(new File(file.getPath() + ".1").toPath()).contains("$$Lambda$3"));
+    assertTrue(read(second.toPath()).contains("$$Lambda$2"));
+    //oldest trace is deleted
+    assertFalse(new File(file.getPath() + ".3").exists());
+  }
+
+  @Test
+  public void testSkipsUnreadableClasses() throws Exception {
+    File file = Files.createTempDirectory("lambda-names").resolve("trace.txt").toFile();
+    BytecodeTracer tracer = new BytecodeTracer(file, 1024 * 1024, 2, 16);
+    tracer.start();
+    tracer.trace(new byte[] {(byte) 0xca, (byte) 0xfe});
+    tracer.trace(TestPendingLambda.lambdaClass(CLASS_NAME));
+    await(file);
+    String trace = read(file.toPath());
+    assertTrue(trace.contains("class " + CLASS_NAME), trace);
+  }
+
+  @Test
+  public void testDropsByteCodeWhenQueueIsFull() throws Exception {
+    File file = Files.createTempDirectory("lambda-names").resolve("trace.txt").toFile();
+    //not started, nothing is taken from the queue
+    BytecodeTracer tracer = new BytecodeTracer(file, 1024 * 1024, 2, 1);
+    tracer.trace(TestPendingLambda.lambdaClass(CLASS_NAME));
+    tracer.trace(TestPendingLambda.lambdaClass(CLASS_NAME));
+    assertEquals(tracer.getDropped(), 1);
+    assertFalse(file.exists());
+  }
+
+  private static void await(File file) throws InterruptedException {
+    for (int i = 0; i < 1000 && file.length() == 0; i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static String read(Path file) throws Exception {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,84 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+public class TestCallSiteIndex {
+
+  private static final String CLASS_NAME = "com/linkedin/util/lambda/TestCallSiteIndex";
+  private static final String DESC = "()Ljava/lang/String;";
+
+  static String first() {
+    return "";
+  }
+
+  static String second() {
+    return "";
+  }
+
+  static String third() {
+    return "";
+  }
+
+  @SuppressWarnings("unused")
+  private void twoOnOneLine() {
+    Supplier<String> a = TestCallSiteIndex::first; Supplier<String> b = TestCallSiteIndex::second;
+  }
+
+  @SuppressWarnings("unused")
+  private void sameTwice() {
+    Supplier<String> a = TestCallSiteIndex::third;
+    Supplier<String> b = TestCallSiteIndex::third;
+  }
+
+  private CallSiteIndex index() {
+    return new OwnerClassCache(1).get(TestCallSiteIndex.class.getClassLoader(), CLASS_NAME).get().getCallSiteIndex();
+  }
+
+  @Test
+  public void testTwoOnOneLine() {
+    Optional<LambdaCallSite> first = index().find(CLASS_NAME, "first", DESC);
+    Optional<LambdaCallSite> second = index().find(CLASS_NAME, "second", DESC);
+    assertTrue(first.isPresent());
+    assertTrue(second.isPresent());
+    assertEquals(first.get().getSourcePointer()._methodName, "twoOnOneLine");
+    assertTrue(first.get().getSourcePointer()._lineNumber > 0);
+    assertEquals(first.get().getSourcePointer(), second.get().getSourcePointer());
+  }
+
+  @Test
+  public void testAmbiguous() {
+    assertFalse(index().find(CLASS_NAME, "third", DESC).isPresent());
+    Optional<LambdaCallSite> approximate = index().findApproximate(CLASS_NAME, "third", DESC);
+    assertTrue(approximate.isPresent());
+    assertEquals(approximate.get().getSourcePointer().toString(), "sameTwice(TestCallSiteIndex)");
+  }
+
+  @Test
+  public void testMatchByNameAndDescriptor() {
+    assertTrue(index().find("com/linkedin/util/lambda/Other", "first", DESC).isPresent());
+    assertFalse(index().find(CLASS_NAME, "first", "()V").isPresent());
+  }
+
+  @Test
+  public void testNoStackFallbackByDefaultWhenAnalysisIsDeferred() {
+    try {
+      CallSiteIndex.configure(AgentOptions.parse("mode=lazy"));
+      assertFalse(CallSiteIndex.isStackFallback());
+      CallSiteIndex.configure(AgentOptions.parse("mode=async"));
+      assertFalse(CallSiteIndex.isStackFallback());
+      CallSiteIndex.configure(AgentOptions.parse("mode=async,stackFallback=true"));
+      assertTrue(CallSiteIndex.isStackFallback());
+    } finally {
+      CallSiteIndex.configure(AgentOptions.empty());
+    }
+    assertTrue(CallSiteIndex.isStackFallback());
+  }
+
+}
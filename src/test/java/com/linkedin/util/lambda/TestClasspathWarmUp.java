@@ -0,0 +1,39 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.testng.annotations.Test;
+
+public class TestClasspathWarmUp {
+
+  private static final String CLASS_NAME = "com/linkedin/util/lambda/TestLambdaNameIndexer";
+
+  @Test
+  public void testNamesLambdasOfClassPath() throws Exception {
+    File testClasses = new File(getClass().getResource("/" + CLASS_NAME + ".class").toURI())
+        .getParentFile().getParentFile().getParentFile().getParentFile().getParentFile();
+    //names apply only to the warmed up loader, lambdas of other tests are not affected
+    ClassLoader loader = new URLClassLoader(new URL[0], null);
+    ClasspathWarmUp warmUp = new ClasspathWarmUp(Collections.singletonList(testClasses), loader,
+        LambdaFilter.fromOptions(AgentOptions.parse("include=com.linkedin.util.lambda.TestLambdaNameIndexer")), 2, 100);
+    warmUp.run();
+    assertTrue(warmUp.getScannedClasses() > 1);
+    //both call sites of TestLambdaNameIndexer.lambdas and both of sameTwice
+    assertEquals(warmUp.getNamedLambdas(), 4);
+
+    Optional<String> byImpl = PrecomputedNames.get(loader, CLASS_NAME, CLASS_NAME, "value", "()Ljava/lang/String;");
+    assertTrue(byImpl.get().startsWith("TestLambdaNameIndexer::value lambdas(TestLambdaNameIndexer:"), byImpl.get());
+    Optional<String> bySite = PrecomputedNames.getSite(loader, CLASS_NAME, "lambdas()V", 1);
+    assertTrue(bySite.get().startsWith("s -> TestLambdaNameIndexer.convert(_) lambdas(TestLambdaNameIndexer:"),
+        bySite.get());
+    assertFalse(PrecomputedNames.getSite(getClass().getClassLoader(), CLASS_NAME, "lambdas()V", 1).isPresent());
+  }
+}
@@ -0,0 +1,67 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import org.testng.annotations.Test;
+
+public class TestCompactName {
+
+  private static void assertSameName(SymbolTable symbols, LambdaName lambdaName) {
+    assertEquals(CompactName.of(lambdaName, symbols).get().format(), lambdaName.getName().get());
+  }
+
+  @Test
+  public void testFormatMatchesLambdaName() {
+    SymbolTable symbols = new SymbolTable();
+    SourcePointer sourcePointer = new SourcePointer("a.b.Host", "run", 12);
+    assertSameName(symbols, new LambdaName("a.b.Host$$Lambda$1", "Host::get", sourcePointer));
+    assertSameName(symbols, new LambdaName("a.b.Host$$Lambda$2", null, sourcePointer));
+    assertSameName(symbols, new LambdaName("a.b.Host$$Lambda$3", "s -> {...}", null));
+    assertSameName(symbols, new LambdaName("a.b.Host$$Lambda$4", "s -> {...}", new SourcePointer("Host", "run", 0)));
+    assertFalse(CompactName.of(new LambdaName("a.b.Host$$Lambda$5", null, null), symbols).isPresent());
+  }
+
+  @Test
+  public void testSymbolsAreShared() {
+    SymbolTable symbols = new SymbolTable();
+    for (int i = 0; i < 100; i++) {
+      CompactName.of(new LambdaName("a.b.Host$$Lambda$" + i, "Host::get", new SourcePointer("a.b.Host", "run", i)),
+          symbols);
+    }
+    //operation, method and class name
+    assertEquals(symbols.size(), 3);
+  }
+
+  @Test
+  public void testPrecomputedNamesAreSplitIntoSymbols() {
+    SymbolTable symbols = new SymbolTable();
+    for (int i = 1; i <= 100; i++) {
+      LambdaName lambdaName = LambdaName.parse("a.b.Host$$Lambda$" + i, "s -> s.trim() run(Host:" + i + ")");
+      assertEquals(lambdaName.getInferredOperation(), "s -> s.trim()");
+      assertSameName(symbols, lambdaName);
+    }
+    //operation, method and class name
+    assertEquals(symbols.size(), 3);
+  }
+
+  @Test
+  public void testUnsplittableNamesAreKeptWhole() {
+    for (String name : new String[] {"Host::get", "s -> s.trim()", "run(Host)", "run(Host:0)", "x ( y"}) {
+      LambdaName lambdaName = LambdaName.parse("a.b.Host$$Lambda$1", name);
+      assertEquals(lambdaName.getName().get(), name);
+    }
+    assertEquals(LambdaName.parse("a.b.Host$$Lambda$1", "Host::get").getInferredOperation(), "Host::get");
+    assertEquals(LambdaName.parse("a.b.Host$$Lambda$1", "run(Host:0)").getInferredOperation(), "run(Host:0)");
+  }
+
+  @Test
+  public void testSymbolTableGrows() {
+    SymbolTable symbols = new SymbolTable();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(symbols.intern("s" + i), i);
+    }
+    assertEquals(symbols.intern("s500"), 500);
+    assertEquals(symbols.get(999), "s999");
+  }
+}
@@ -0,0 +1,69 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Optional;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.testng.annotations.Test;
+
+public class TestInsnScanner {
+
+  private static final String OWNER = "com/example/Owner";
+
+  private static MethodNode method(InsnList instructions) {
+    MethodNode method = new MethodNode(Opcodes.ASM9, Opcodes.ACC_STATIC, "m", "()V", null, null);
+    method.instructions = instructions;
+    return method;
+  }
+
+  private static Optional<String> receiver(MethodNode method) {
+    InsnList instructions = method.instructions;
+    int invoke = InsnScanner.previousInvoke(instructions, instructions.size());
+    int producer = InsnScanner.producer(instructions, invoke, InsnScanner.firstOperandDepth(instructions.get(invoke)));
+    return producer == InsnScanner.NOT_FOUND ? Optional.empty() : InsnScanner.describe(method, producer);
+  }
+
+  @Test
+  public void testTracesThroughSwap() {
+    InsnList instructions = new InsnList();
+    instructions.add(new VarInsnNode(Opcodes.ALOAD, 0));
+    instructions.add(new FieldInsnNode(Opcodes.GETSTATIC, OWNER, "field", "Ljava/lang/String;"));
+    instructions.add(new InsnNode(Opcodes.SWAP));
+    instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, OWNER, "call", "(Ljava/lang/Object;)V", false));
+    assertEquals(receiver(method(instructions)), Optional.of("field"));
+  }
+
+  @Test
+  public void testTracesThroughWideValuesAndDup() {
+    InsnList instructions = new InsnList();
+    instructions.add(new VarInsnNode(Opcodes.LLOAD, 1));
+    instructions.add(new TypeInsnNode(Opcodes.NEW, OWNER));
+    instructions.add(new InsnNode(Opcodes.DUP));
+    instructions.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, OWNER, "<init>", "()V", false));
+    instructions.add(new InsnNode(Opcodes.DUP_X2));
+    instructions.add(new InsnNode(Opcodes.POP));
+    instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, OWNER, "call", "(J)V", false));
+    assertEquals(receiver(method(instructions)), Optional.of("new Owner()"));
+  }
+
+  @Test
+  public void testGivesUpAtJump() {
+    InsnList instructions = new InsnList();
+    LabelNode label = new LabelNode();
+    instructions.add(new FieldInsnNode(Opcodes.GETSTATIC, OWNER, "field", "Ljava/lang/String;"));
+    instructions.add(new JumpInsnNode(Opcodes.GOTO, label));
+    instructions.add(label);
+    instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, OWNER, "call", "()V", false));
+    assertEquals(receiver(method(instructions)), Optional.empty());
+  }
+}
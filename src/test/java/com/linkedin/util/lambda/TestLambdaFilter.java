@@ -0,0 +1,81 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.security.ProtectionDomain;
+import java.util.concurrent.Callable;
+
+import org.testng.annotations.Test;
+
+public class TestLambdaFilter {
+
+  private static LambdaFilter filter(String options) {
+    return LambdaFilter.fromOptions(AgentOptions.parse(options));
+  }
+
+  @Test
+  public void testPrefixTrie() {
+    PrefixTrie trie = new PrefixTrie();
+    trie.add("com.google.");
+    trie.add("io.netty");
+    assertTrue(trie.matches("com/google/common/Foo"));
+    assertTrue(trie.matches("com.google.common.Foo"));
+    assertTrue(trie.matches("io/nettyx/Foo"));
+    assertFalse(trie.matches("com/googlex/Foo"));
+    assertFalse(trie.matches("com/goo"));
+    assertFalse(trie.matches("org/Foo"));
+    assertFalse(new PrefixTrie().matches("org/Foo"));
+  }
+
+  @Test
+  public void testIncludeAndExclude() {
+    LambdaFilter filter = filter("include=com.linkedin.;com.example.,exclude=com.linkedin.generated.");
+    assertTrue(filter.acceptsHost("com/linkedin/Service"));
+    assertTrue(filter.acceptsHost("com.example.Service"));
+    assertFalse(filter.acceptsHost("com/linkedin/generated/Stub"));
+    assertFalse(filter.acceptsHost("com/google/common/Foo"));
+    assertTrue(filter("").isAcceptAll());
+    assertTrue(filter("exclude=com.google.").acceptsHost("com/linkedin/Service"));
+  }
+
+  @Test
+  public void testLambdaClassIsMatchedByHostAndInterface() {
+    LambdaFilter filter = filter("include=com.linkedin.,interfaces=java.lang.Runnable");
+    assertTrue(filter.acceptsLambdaClass("com/linkedin/Service$$Lambda$1",
+        new String[] {"java/lang/Runnable"}));
+    assertFalse(filter.acceptsLambdaClass("com/linkedin/Service$$Lambda$2",
+        new String[] {"java/util/function/Supplier"}));
+    assertFalse(filter.acceptsLambdaClass("com/google/Service$$Lambda$3",
+        new String[] {"java/lang/Runnable"}));
+    //lambda class name must not be matched past its host class name
+    assertFalse(filter("include=com.linkedin.Service$").acceptsLambdaClass("com/linkedin/Service$$Lambda$4",
+        new String[0]));
+  }
+
+  @Test
+  public void testOptionsBuilder() {
+    assertEquals(new LambdaNamesOptions().include("com.a.", "com.b.").exclude("com.a.gen.").include("com.c.")
+        .interfaces(Runnable.class, Callable.class).set("mode", "lazy").toString(),
+        "include=com.a.;com.b.;com.c.,exclude=com.a.gen.,interfaces=java.lang.Runnable;java.util.concurrent.Callable,"
+        + "mode=lazy");
+  }
+
+  @Test
+  public void testRewriterSkipsRejectedLambdas() {
+    ProtectionDomain protectionDomain = TestLambdaFilter.class.getProtectionDomain();
+    String name = TestBootstrapRewriter.Host.class.getName();
+    byte[] byteCode = TestBootstrapRewriter.bytes(name);
+    ClassLoader loader = getClass().getClassLoader();
+    assertNotNull(new BootstrapRewriter(filter("include=" + name))
+        .rewrite(loader, name.replace('.', '/'), protectionDomain, byteCode));
+    assertNull(new BootstrapRewriter(filter("exclude=" + name))
+        .rewrite(loader, name.replace('.', '/'), protectionDomain, byteCode));
+    //Host only has Supplier lambdas
+    assertNull(new BootstrapRewriter(filter("interfaces=java.lang.Runnable"))
+        .rewrite(loader, name.replace('.', '/'), protectionDomain, byteCode));
+  }
+}
@@ -0,0 +1,77 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+public class TestLambdaNameIndexer {
+
+  private static final String CLASS_NAME = "com/linkedin/util/lambda/TestLambdaNameIndexer";
+
+  static String value() {
+    return "";
+  }
+
+  static Integer convert(String s) {
+    return s.length();
+  }
+
+  @SuppressWarnings("unused")
+  private void lambdas() {
+    Supplier<String> ref = TestLambdaNameIndexer::value;
+    Function<String, Integer> block = s -> TestLambdaNameIndexer.convert(s);
+  }
+
+  @SuppressWarnings("unused")
+  private void sameTwice() {
+    Supplier<String> a = String::new;
+    Supplier<String> b = String::new;
+  }
+
+  private Map<String, String> index() throws IOException {
+    LambdaNameIndexer indexer = new LambdaNameIndexer();
+    try (InputStream is = getClass().getClassLoader().getResourceAsStream(CLASS_NAME + ".class")) {
+      indexer.addClass(is);
+    }
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    indexer.write(os);
+    Map<String, String> names = new HashMap<>();
+    PrecomputedNames.read(new ByteArrayInputStream(os.toByteArray()), names);
+    assertEquals(names.size(), indexer.size());
+    return names;
+  }
+
+  @Test
+  public void testMethodRef() throws IOException {
+    String name = index().get(PrecomputedNames.key(CLASS_NAME, CLASS_NAME, "value", "()Ljava/lang/String;"));
+    assertTrue(name.startsWith("TestLambdaNameIndexer::value lambdas(TestLambdaNameIndexer:"), name);
+  }
+
+  @Test
+  public void testBlock() throws IOException {
+    for (Map.Entry<String, String> entry : index().entrySet()) {
+      if (entry.getKey().contains(".lambda$lambdas$")) {
+        assertTrue(entry.getValue().startsWith("s -> TestLambdaNameIndexer.convert(_) lambdas(TestLambdaNameIndexer:"),
+            entry.getValue());
+        return;
+      }
+    }
+    throw new AssertionError("lambda expression not indexed");
+  }
+
+  @Test
+  public void testAmbiguousLeftOut() throws IOException {
+    assertFalse(index().containsKey(PrecomputedNames.key(CLASS_NAME, "java/lang/String", "<init>", "()V")));
+  }
+}
@@ -1,6 +1,8 @@
 package com.linkedin.util.lambda;
 
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
 import java.util.Optional;
 
@@ -9,7 +11,7 @@ import org.testng.annotations.Test;
 public class TestLambdaNames {
 
   static {
-    LambdaNames.initialize();
+    LambdaNames.initialize(LambdaNamesAgent.RETRANSFORM_LOADED + "=true");
   }
 
 
@@ -20,6 +22,17 @@ public class TestLambdaNames {
     assertFalse(lambdaName.isPresent());
   }
 
+  @Test
+  public void testNotALambdaOrNull() {
+    assertNull(LambdaNames.getLambdaNameOrNull(new Object()));
+  }
+
+  @Test
+  public void testNameIsCachedOnClass() {
+    Runnable r = () -> {};
+    assertSame(LambdaNames.getLambdaName(r), LambdaNames.getLambdaName(r));
+  }
+
   @Test(expectedExceptions={NullPointerException.class})
   public void testNull() {
     Optional<String> lambdaName = LambdaNames.getLambdaName(null);
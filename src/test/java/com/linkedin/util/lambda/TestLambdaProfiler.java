@@ -0,0 +1,96 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+public class TestLambdaProfiler {
+
+  private static final String PROFILED = "com/linkedin/util/lambda/ProfiledHost$$Lambda$1";
+  private static final String NOT_PROFILED = "com/linkedin/util/lambda/OtherHost$$Lambda$1";
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCountsAndTimesInvocations() throws Exception {
+    //only classes generated by this test are profiled, lambdas of other tests are not affected
+    LambdaProfiler.configure(AgentOptions.parse(
+        "profile,profileSampleRate=1,profileInclude=com.linkedin.util.lambda.ProfiledHost"));
+    TestClassLoader loader = new TestClassLoader();
+    assertNull(LambdaProfiler.instrument(lambdaClass(NOT_PROFILED), loader));
+    byte[] instrumented = LambdaProfiler.instrument(lambdaClass(PROFILED), loader);
+    assertNotNull(instrumented);
+
+    Supplier<String> lambda = (Supplier<String>) loader.define(PROFILED, instrumented).newInstance();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(lambda.get(), "value");
+    }
+    Map<String, Long> stats = LambdaProfiler.report().get(PROFILED.replace('/', '.'));
+    assertEquals(stats.get("calls"), Long.valueOf(3));
+    assertEquals(stats.get("sampled"), Long.valueOf(3));
+    assertTrue(stats.get("estimatedNanos") > 0);
+  }
+
+  @Test
+  public void testProbesOfCollectedLoadersAreReleased() throws Exception {
+    LambdaProfiler.configure(AgentOptions.parse(
+        "profile,profileSampleRate=1,profileInclude=com.linkedin.util.lambda.ProfiledHost"));
+    int probes = LambdaProfiler.getProbes();
+    String collected = "com/linkedin/util/lambda/ProfiledHost$$Lambda$2";
+    TestClassLoader loader = new TestClassLoader();
+    assertNotNull(LambdaProfiler.instrument(lambdaClass(collected), loader));
+    assertEquals(LambdaProfiler.getProbes(), probes + 1);
+    loader = null;
+    for (int i = 0; i < 100 && LambdaProfiler.getProbes() > probes; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    //probes of the other test may be released too
+    assertTrue(LambdaProfiler.getProbes() <= probes);
+    assertNull(LambdaProfiler.report().get(collected.replace('/', '.')));
+  }
+
+  /**
+   * Class shaped like a lambda class generated by {@link java.lang.invoke.LambdaMetafactory}.
+   */
+  private static byte[] lambdaClass(String name) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, name, null,
+        "java/lang/Object", new String[] {"java/util/function/Supplier"});
+    MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+    MethodVisitor get = cw.visitMethod(Opcodes.ACC_PUBLIC, "get", "()Ljava/lang/Object;", null, null);
+    get.visitCode();
+    get.visitLdcInsn("value");
+    get.visitInsn(Opcodes.ARETURN);
+    get.visitMaxs(0, 0);
+    get.visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private static class TestClassLoader extends ClassLoader {
+
+    private TestClassLoader() {
+      super(TestLambdaProfiler.class.getClassLoader());
+    }
+
+    private Class<?> define(String name, byte[] byteCode) {
+      //lambda classes are defined without a name, this one must not be taken for one by the agent
+      return defineClass(name.replace('/', '.'), byteCode, 0, byteCode.length);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+public class TestLambdaSymbolizer {
+
+  private static final String INPUT =
+      "java/lang/Thread.run;com/foo/Bar$$Lambda$12/1234.apply;com/foo/Bar.lambda$run$0 5\n"
+      + "java/lang/Thread.run;com/foo/Bar$$Lambda$12/0x0000000800c0b440.apply;com/foo/Bar.lambda$run$0 3\n"
+      + "java/lang/Thread.run;com/foo/Bar$$Lambda$13.0x0000000800c0c000.get_[j] 2\n"
+      + "java/lang/Thread.run;com/foo/Bar$$Lambda$14/0x0000000800c0d000.get_[j] 1\n"
+      + "java/lang/Thread.run;com.foo.Bar$$Lambda$12+0x00007f24010a1260.129153987.apply 4\n"
+      + "main;work 7\n";
+
+  private static final Map<String, String> NAMES =
+      Collections.singletonMap("com.foo.Bar$$Lambda$12", "s -> s.length() run(Bar:10)");
+
+  @Test
+  public void testSymbolizesCollapsedStacks() throws Exception {
+    assertEquals(symbolize(false),
+        "java/lang/Thread.run;[s -> s.length() run(Bar:10)].apply;com/foo/Bar.lambda$run$0 5\n"
+        + "java/lang/Thread.run;[s -> s.length() run(Bar:10)].apply;com/foo/Bar.lambda$run$0 3\n"
+        + "java/lang/Thread.run;com/foo/Bar$$Lambda.get_[j] 2\n"
+        + "java/lang/Thread.run;com/foo/Bar$$Lambda.get_[j] 1\n"
+        + "java/lang/Thread.run;[s -> s.length() run(Bar:10)].apply 4\n"
+        + "main;work 7\n");
+  }
+
+  @Test
+  public void testMergesStacksThatDifferByLambdaClass() throws Exception {
+    assertEquals(symbolize(true),
+        "java/lang/Thread.run;[s -> s.length() run(Bar:10)].apply;com/foo/Bar.lambda$run$0 8\n"
+        + "java/lang/Thread.run;com/foo/Bar$$Lambda.get_[j] 3\n"
+        + "java/lang/Thread.run;[s -> s.length() run(Bar:10)].apply 4\n"
+        + "main;work 7\n");
+  }
+
+  @Test
+  public void testTellsHiddenClassesOfOneHostApartByAddress() {
+    //JDK 21 and later do not number hidden lambda classes
+    Map<String, String> names = new HashMap<>();
+    names.put("com.foo.Baz$$Lambda/0x0000000800c0b440", "Baz::first");
+    names.put("com.foo.Baz$$Lambda/0x0000000800c0c000", "Baz::second");
+    LambdaSymbolizer symbolizer = new LambdaSymbolizer(names);
+    assertEquals(symbolizer.symbolize("main;com/foo/Baz$$Lambda/0x0000000800c0b440.run 1"), "main;[Baz::first].run 1");
+    assertEquals(symbolizer.symbolize("main;com/foo/Baz$$Lambda.0x0000000800c0c000.run 1"),
+        "main;[Baz::second].run 1");
+    assertEquals(symbolizer.symbolize("main;com.foo.Baz$$Lambda+0x0000000800c0c000.129153987.run 1"),
+        "main;[Baz::second].run 1");
+    assertEquals(symbolizer.symbolize("main;com/foo/Baz$$Lambda/0x0000000800c0d000.run 1"),
+        "main;com/foo/Baz$$Lambda.run 1");
+  }
+
+  @Test
+  public void testSymbolizesExportedNames() throws Exception {
+    LambdaNames.initialize(LambdaNamesAgent.RETRANSFORM_LOADED + "=true");
+    Supplier<String> first = () -> "first";
+    Supplier<String> second = () -> "second";
+    String firstName = LambdaNames.getLambdaName(first).get();
+    String secondName = LambdaNames.getLambdaName(second).get();
+
+    ByteArrayOutputStream exported = new ByteArrayOutputStream();
+    LambdaNames.exportNames(exported);
+    Map<String, String> names = new HashMap<>();
+    PrecomputedNames.read(new ByteArrayInputStream(exported.toByteArray()), names);
+
+    //runtime names of the lambda classes, e.g. with addresses of hidden classes
+    LambdaSymbolizer symbolizer = new LambdaSymbolizer(names);
+    assertEquals(symbolizer.symbolize("main;" + first.getClass().getName() + ".get 1"),
+        "main;[" + firstName + "].get 1");
+    assertEquals(symbolizer.symbolize("main;" + second.getClass().getName() + ".get 1"),
+        "main;[" + secondName + "].get 1");
+  }
+
+  private static String symbolize(boolean merge) throws Exception {
+    StringWriter out = new StringWriter();
+    new LambdaSymbolizer(NAMES).symbolizeCollapsed(new BufferedReader(new StringReader(INPUT)), out, merge);
+    return out.toString();
+  }
+}
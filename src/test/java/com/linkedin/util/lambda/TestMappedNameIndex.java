@@ -0,0 +1,75 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class TestMappedNameIndex {
+
+  private static MappedNameIndex index(Map<String, String> names) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    MappedNameIndex.write(names, os);
+    return new MappedNameIndex(ByteBuffer.wrap(os.toByteArray()));
+  }
+
+  @Test
+  public void testFindsAllEntries() throws IOException {
+    Map<String, String> names = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      names.put(PrecomputedNames.key("a/Host" + i, "a/Host" + i, "lambda$run$" + i, "()V"),
+          "() -> {...} run(Host" + i + ":" + i + ")");
+    }
+    names.put(PrecomputedNames.key("a/Hóst", "a/Hóst", "lambda$run$0", "()V"), "() -> € run(Hóst:1)");
+    MappedNameIndex index = index(names);
+    assertEquals(index.size(), names.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(index.get("a/Host" + i, "a/Host" + i, "lambda$run$" + i, "()V").get(),
+          "() -> {...} run(Host" + i + ":" + i + ")");
+    }
+    assertEquals(index.get("a/Hóst", "a/Hóst", "lambda$run$0", "()V").get(), "() -> € run(Hóst:1)");
+  }
+
+  @Test
+  public void testMissing() throws IOException {
+    Map<String, String> names = new HashMap<>();
+    names.put(PrecomputedNames.key("a/Host", "a/Host", "get", "()V"), "Host::get");
+    MappedNameIndex index = index(names);
+    assertEquals(index.find("a/Host", "a/Host", "get", "()V"), 0);
+    assertFalse(index.get("a/Host", "a/Host", "get", "()I").isPresent());
+    assertFalse(index.get("a/Host", "a/Host", "get", "()").isPresent());
+    assertFalse(index.get("a/Host", "a/Host", "get", "()VV").isPresent());
+    assertFalse(index.get("a/Host2", "a/Host", "get", "()V").isPresent());
+  }
+
+  @Test
+  public void testEqualNamesStoredOnce() throws IOException {
+    Map<String, String> names = new HashMap<>();
+    names.put(PrecomputedNames.key("a/Host", "a/Host", "first", "()V"), "some long lambda name");
+    ByteArrayOutputStream one = new ByteArrayOutputStream();
+    MappedNameIndex.write(names, one);
+    names.put(PrecomputedNames.key("a/Host", "a/Host", "secnd", "()V"), "some long lambda name");
+    ByteArrayOutputStream two = new ByteArrayOutputStream();
+    MappedNameIndex.write(names, two);
+    //second entry adds only its key
+    assertEquals(two.size() - one.size(), 20 + PrecomputedNames.key("a/Host", "a/Host", "secnd", "()V").length());
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testRejectsEntryOutsideOfPool() throws IOException {
+    Map<String, String> names = new HashMap<>();
+    names.put(PrecomputedNames.key("a/Host", "a/Host", "get", "()V"), "Host::get");
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    MappedNameIndex.write(names, os);
+    ByteBuffer buffer = ByteBuffer.wrap(os.toByteArray());
+    //name length of the only entry
+    buffer.putInt(16 + 16, buffer.capacity());
+    new MappedNameIndex(buffer);
+  }
+}
@@ -14,7 +14,7 @@ import org.testng.annotations.Test;
 public class TestMethodInvLambdaNames {
 
   static {
-    LambdaNames.initialize();
+    LambdaNames.initialize(LambdaNamesAgent.RETRANSFORM_LOADED + "=true");
   }
 
   static TestMethodInvLambdaNames staticField = new TestMethodInvLambdaNames();
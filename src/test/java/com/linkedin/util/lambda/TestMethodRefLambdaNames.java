@@ -24,7 +24,7 @@ public class TestMethodRefLambdaNames {
 
 
   static {
-    LambdaNames.initialize();
+    LambdaNames.initialize(LambdaNamesAgent.RETRANSFORM_LOADED + "=true");
   }
 
   static TestMethodRefLambdaNames staticField = new TestMethodRefLambdaNames();
@@ -0,0 +1,89 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ * Classes of {@code src/main/java9} and {@code src/main/java11} are tested on JDK 9 and 11 or later.
+ */
+public class TestMultiRelease {
+
+  @Test
+  public void testVersionedClassesAreLoaded() throws Exception {
+    if (javaVersion() >= 9) {
+      assertTrue(location(CallSiteLocator.class).endsWith("/META-INF/versions/9/"), location(CallSiteLocator.class));
+    }
+    if (javaVersion() >= 11) {
+      String jfrStacks = location(Class.forName(getClass().getPackage().getName() + ".JfrStacks"));
+      assertTrue(jfrStacks.endsWith("/META-INF/versions/11/"), jfrStacks);
+      assertTrue(location(AnalysisEvents.class).endsWith("/META-INF/versions/11/"), location(AnalysisEvents.class));
+    }
+  }
+
+  @Test
+  public void testCallSiteIsLocated() {
+    SourcePointer pointer = CallSiteLocator.locate().get();
+    assertTrue(pointer.toString().contains("TestMultiRelease"), pointer.toString());
+  }
+
+  @Test
+  public void testReadsStacksOfJfrRecording() throws Exception {
+    if (javaVersion() < 11) {
+      throw new SkipException("Reading JFR recordings requires JDK 11 or later");
+    }
+    Path file = Files.createTempDirectory("lambda-names").resolve("recording.jfr");
+    //compiled for JDK 8, recording is made through reflection
+    Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+    Object recording = recordingClass.getConstructor().newInstance();
+    Map<String, String> settings = new HashMap<>();
+    settings.put("jdk.ThreadSleep#enabled", "true");
+    settings.put("jdk.ThreadSleep#threshold", "0 ms");
+    settings.put("jdk.ThreadSleep#stackTrace", "true");
+    recordingClass.getMethod("setSettings", Map.class).invoke(recording, settings);
+    recordingClass.getMethod("start").invoke(recording);
+    sleep();
+    recordingClass.getMethod("stop").invoke(recording);
+    recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+    recordingClass.getMethod("close").invoke(recording);
+
+    Map<String, Long> stacks = new HashMap<>();
+    LambdaSymbolizer.readJfr(file, "jdk.ThreadSleep", (stack, count) -> stacks.merge(stack, count, Long::sum));
+    assertTrue(stacks.keySet().stream().anyMatch(stack -> stack.contains(getClass().getName() + ".sleep")),
+        stacks.toString());
+  }
+
+  @Test
+  public void testJfrRecordingIsRejectedOnJdk8() throws Exception {
+    if (javaVersion() >= 11) {
+      throw new SkipException("JFR recordings are readable on JDK 11 or later");
+    }
+    Path dir = Files.createTempDirectory("lambda-names");
+    Path names = Files.write(dir.resolve("names.txt"), new byte[0]);
+    Path output = dir.resolve("output.collapsed");
+    assertEquals(LambdaSymbolizer.run(new String[] {names.toString(), dir.resolve("recording.jfr").toString(),
+        output.toString()}), 1);
+    assertFalse(Files.exists(output));
+  }
+
+  private static void sleep() throws InterruptedException {
+    Thread.sleep(10);
+  }
+
+  private static String location(Class<?> type) {
+    return type.getProtectionDomain().getCodeSource().getLocation().toString();
+  }
+
+  private static int javaVersion() {
+    String version = System.getProperty("java.specification.version");
+    return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+  }
+}
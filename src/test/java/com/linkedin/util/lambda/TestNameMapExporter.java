@@ -0,0 +1,65 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class TestNameMapExporter {
+
+  @Test
+  public void testAppendsNamesAndCompactsCollectedOnes() throws Exception {
+    Path file = Files.createTempDirectory("lambda-names").resolve("lambda-names.map");
+    NameMapExporter exporter = new NameMapExporter(file, 1000, 100);
+    ClassLoader live = getClass().getClassLoader();
+    ClassLoader collected = new URLClassLoader(new URL[0], null);
+    exporter.exported(live, "a.Live$$Lambda$1", "Live::run");
+    exporter.exported(null, "java.lang.Boot$$Lambda$2", "Boot::run");
+    exporter.exported(collected, "a.Collected$$Lambda$3", "Collected::run");
+    exporter.flush();
+    assertEquals(lines(file).size(), 3);
+
+    exporter.exported(live, "a.Live$$Lambda$4", "s -> s.length() run(Live:10)");
+    //file is compacted once class loaders of at least half of the lambdas are collected
+    exporter.exported(collected, "a.Collected$$Lambda$5", "Collected::run");
+    exporter.exported(collected, "a.Collected$$Lambda$6", "Collected::run");
+    exporter.flush();
+    collected = null;
+    for (int i = 0; i < 100 && lines(file).size() != 3; i++) {
+      System.gc();
+      Thread.sleep(10);
+      exporter.flush();
+    }
+    assertEquals(lines(file), Arrays.asList("java.lang.Boot$$Lambda$2\tBoot::run", "a.Live$$Lambda$1\tLive::run",
+        "a.Live$$Lambda$4\ts -> s.length() run(Live:10)"));
+
+    exporter.exported(live, "a.Live$$Lambda$7", "Live::call");
+    exporter.flush();
+    assertEquals(lines(file).get(3), "a.Live$$Lambda$7\tLive::call");
+  }
+
+  @Test
+  public void testDropsNamesWhenQueueIsFullOrClosed() throws Exception {
+    Path file = Files.createTempDirectory("lambda-names").resolve("lambda-names.map");
+    NameMapExporter exporter = new NameMapExporter(file, 1000, 1);
+    exporter.exported(null, "java.lang.Boot$$Lambda$1", "Boot::run");
+    exporter.exported(null, "java.lang.Boot$$Lambda$2", "Boot::run");
+    assertEquals(exporter.getDropped(), 1);
+    exporter.close();
+    exporter.exported(null, "java.lang.Boot$$Lambda$3", "Boot::run");
+    exporter.flush();
+    assertEquals(lines(file).size(), 0);
+    assertEquals(exporter.getDropped(), 1);
+  }
+
+  private static List<String> lines(Path file) throws Exception {
+    return Files.readAllLines(file, StandardCharsets.UTF_8);
+  }
+}
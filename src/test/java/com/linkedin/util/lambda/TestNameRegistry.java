@@ -0,0 +1,88 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.testng.annotations.Test;
+
+public class TestNameRegistry {
+
+  private static CompactName name(SymbolTable symbols, String className) {
+    return CompactName.of(new LambdaName(className, "Host::get", null), symbols).get();
+  }
+
+  @Test
+  public void testNamesArePerClassLoader() {
+    SymbolTable symbols = new SymbolTable();
+    NameRegistry registry = new NameRegistry(0);
+    ClassLoader first = new URLClassLoader(new URL[0]);
+    ClassLoader second = new URLClassLoader(new URL[0]);
+    registry.put(first, "Host$$Lambda$1", name(symbols, "Host$$Lambda$1"));
+    assertNotNull(registry.get(first, "Host$$Lambda$1"));
+    assertNull(registry.get(second, "Host$$Lambda$1"));
+  }
+
+  @Test
+  public void testNamesAreReleasedWithClassLoader() throws InterruptedException {
+    SymbolTable symbols = new SymbolTable();
+    NameRegistry registry = new NameRegistry(0);
+    ClassLoader loader = new URLClassLoader(new URL[0]);
+    for (int i = 0; i < 100; i++) {
+      registry.put(loader, "Host$$Lambda$" + i, name(symbols, "Host$$Lambda$" + i));
+    }
+    assertEquals(registry.size(), 100);
+    loader = null;
+    for (int i = 0; i < 100 && registry.getLoaders() > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(registry.getLoaders(), 0);
+    assertEquals(registry.size(), 0);
+  }
+
+  @Test
+  public void testSymbolsArePerClassLoader() {
+    NameRegistry registry = new NameRegistry(0);
+    ClassLoader first = new URLClassLoader(new URL[0]);
+    ClassLoader second = new URLClassLoader(new URL[0]);
+    assertSame(registry.symbols(first), registry.symbols(first));
+    assertNotSame(registry.symbols(first), registry.symbols(second));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedNamesAreEvicted() {
+    SymbolTable symbols = new SymbolTable();
+    NameRegistry registry = new NameRegistry(2);
+    ClassLoader loader = new URLClassLoader(new URL[0]);
+    registry.put(loader, "Host$$Lambda$1", name(symbols, "Host$$Lambda$1"));
+    registry.put(loader, "Host$$Lambda$2", name(symbols, "Host$$Lambda$2"));
+    registry.get(loader, "Host$$Lambda$1");
+    registry.put(loader, "Host$$Lambda$3", name(symbols, "Host$$Lambda$3"));
+    assertNotNull(registry.get(loader, "Host$$Lambda$1"));
+    assertNull(registry.get(loader, "Host$$Lambda$2"));
+    assertNotNull(registry.get(loader, "Host$$Lambda$3"));
+    assertEquals(registry.size(), 2);
+    assertEquals(registry.getEvictions(), 1);
+  }
+
+  @Test
+  public void testLinkedLambdasAreCapped() {
+    NameRegistry registry = new NameRegistry(2);
+    ClassLoader loader = new URLClassLoader(new URL[0]);
+    for (int i = 1; i <= 3; i++) {
+      String className = "Host$$Lambda/0x" + i;
+      registry.putLinked(loader, className, new LinkedLambda(className, "Host", loader, "run()V", i, null,
+          registry.symbols(loader)));
+    }
+    assertNull(registry.getLinked(loader, "Host$$Lambda/0x1"));
+    assertNotNull(registry.getLinked(loader, "Host$$Lambda/0x2"));
+    assertNotNull(registry.getLinked(loader, "Host$$Lambda/0x3"));
+    assertEquals(registry.size(), 2);
+  }
+}
@@ -0,0 +1,57 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.testng.annotations.Test;
+
+public class TestOwnerBytesStore {
+
+  private final ClassLoader _loader = TestOwnerBytesStore.class.getClassLoader();
+
+  private static byte[] byteCode(Class<?> clazz) throws IOException {
+    try (InputStream is = clazz.getResourceAsStream(clazz.getSimpleName() + ".class")) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        baos.write(buffer, 0, read);
+      }
+      return baos.toByteArray();
+    }
+  }
+
+  @Test
+  public void testReferencesLambdaMetafactory() throws IOException {
+    assertTrue(ConstantPool.referencesLambdaMetafactory(byteCode(TestMethodRefLambdaNames.class)));
+    assertFalse(ConstantPool.referencesLambdaMetafactory(byteCode(TestOwnerBytesStore.class)));
+  }
+
+  @Test
+  public void testTakeReleases() throws IOException {
+    OwnerBytesStore store = new OwnerBytesStore(1024 * 1024);
+    byte[] byteCode = byteCode(TestMethodRefLambdaNames.class);
+    store.offer(_loader, "com/linkedin/util/lambda/TestMethodRefLambdaNames", byteCode);
+    store.offer(_loader, "com/linkedin/util/lambda/TestOwnerBytesStore", byteCode(TestOwnerBytesStore.class));
+    assertEquals(store.getBytes(), byteCode.length);
+    assertTrue(store.take(_loader, "com/linkedin/util/lambda/TestMethodRefLambdaNames") == byteCode);
+    assertNull(store.take(_loader, "com/linkedin/util/lambda/TestMethodRefLambdaNames"));
+    assertNull(store.take(_loader, "com/linkedin/util/lambda/TestOwnerBytesStore"));
+    assertEquals(store.getBytes(), 0);
+  }
+
+  @Test
+  public void testMaxBytes() throws IOException {
+    OwnerBytesStore store = new OwnerBytesStore(10);
+    store.offer(_loader, "com/linkedin/util/lambda/TestMethodRefLambdaNames", byteCode(TestMethodRefLambdaNames.class));
+    assertNull(store.take(_loader, "com/linkedin/util/lambda/TestMethodRefLambdaNames"));
+    assertEquals(store.getSkipped(), 1);
+  }
+
+}
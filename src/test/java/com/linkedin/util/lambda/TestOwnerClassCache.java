@@ -0,0 +1,45 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.testng.annotations.Test;
+
+public class TestOwnerClassCache {
+
+  private final ClassLoader _loader = TestOwnerClassCache.class.getClassLoader();
+
+  @Test
+  public void testParsedOnce() {
+    OwnerClassCache cache = new OwnerClassCache(10);
+    Optional<OwnerClass> first = cache.get(_loader, "com/linkedin/util/lambda/TestOwnerClassCache");
+    Optional<OwnerClass> second = cache.get(_loader, "com/linkedin/util/lambda/TestOwnerClassCache");
+    assertTrue(first.isPresent());
+    assertTrue(first.get() == second.get());
+    assertEquals(cache.getMisses(), 1);
+    assertEquals(cache.getHits(), 1);
+    assertTrue(first.get().getMethod("testParsedOnce", "()V").isPresent());
+  }
+
+  @Test
+  public void testEviction() {
+    OwnerClassCache cache = new OwnerClassCache(1);
+    cache.get(_loader, "com/linkedin/util/lambda/TestOwnerClassCache");
+    cache.get(_loader, "com/linkedin/util/lambda/TestLambdaNames");
+    cache.get(_loader, "com/linkedin/util/lambda/TestOwnerClassCache");
+    assertEquals(cache.size(), 1);
+    assertEquals(cache.getMisses(), 3);
+    assertEquals(cache.getEvictions(), 2);
+  }
+
+  @Test
+  public void testMissingClass() {
+    OwnerClassCache cache = new OwnerClassCache(10);
+    assertFalse(cache.get(_loader, "com/linkedin/util/lambda/DoesNotExist").isPresent());
+    assertEquals(cache.size(), 0);
+  }
+
+}
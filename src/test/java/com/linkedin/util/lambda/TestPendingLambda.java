@@ -0,0 +1,82 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+public class TestPendingLambda {
+
+  private static final String HOST = "com/linkedin/util/lambda/TestPendingLambda";
+
+  static String value() {
+    return "value";
+  }
+
+  @SuppressWarnings("unused")
+  private static Supplier<String> methodRef() {
+    return TestPendingLambda::value;
+  }
+
+  @Test
+  public void testAnalyzedOnce() {
+    PendingLambda pending = new PendingLambda(HOST.replace('/', '.') + "$$Lambda$1",
+        lambdaClass(HOST + "$$Lambda$1"), Optional.empty(), getClass().getClassLoader());
+    assertNull(pending.getIfResolved());
+    Optional<String> name = pending.resolve();
+    assertTrue(name.get().startsWith("TestPendingLambda::value methodRef(TestPendingLambda:"), name.get());
+    LambdaName lambdaName = pending.getLambdaName();
+
+    //repeated lookups return the memoized result without analyzing the class again
+    assertSame(pending.resolve(), name);
+    assertSame(pending.getIfResolved(), name);
+    assertSame(pending.getLambdaName(), lambdaName);
+  }
+
+  @Test
+  public void testNameIsRegisteredWhenRequested() {
+    String className = HOST.replace('/', '.') + "$$Lambda$2";
+    ClassLoader loader = getClass().getClassLoader();
+    PendingLambda pending = new PendingLambda(className, lambdaClass(HOST + "$$Lambda$2"), Optional.empty(), loader);
+    LambdaNames.addPending(pending);
+    Optional<String> name = LambdaNames.getLambdaName(loader, className);
+    assertTrue(name.isPresent());
+    //once requested the name is kept in the registry
+    assertEquals(LambdaNames.getLambdaName(loader, className), name);
+    assertSame(pending.getIfResolved(), name);
+  }
+
+  /**
+   * Class shaped like a lambda class generated by {@link java.lang.invoke.LambdaMetafactory} for
+   * {@code TestPendingLambda::value}.
+   */
+  static byte[] lambdaClass(String name) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, name, null, "java/lang/Object",
+        new String[] {"java/util/function/Supplier"});
+    MethodVisitor init = cw.visitMethod(Opcodes.ACC_PRIVATE, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+    MethodVisitor get = cw.visitMethod(Opcodes.ACC_PUBLIC, "get", "()Ljava/lang/Object;", null, null);
+    get.visitAnnotation("Ljava/lang/invoke/LambdaForm$Hidden;", true).visitEnd();
+    get.visitCode();
+    get.visitMethodInsn(Opcodes.INVOKESTATIC, HOST, "value", "()Ljava/lang/String;", false);
+    get.visitInsn(Opcodes.ARETURN);
+    get.visitMaxs(0, 0);
+    get.visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+}
@@ -0,0 +1,152 @@
+package com.linkedin.util.lambda;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.testng.annotations.Test;
+
+public class TestPersistentNameCache {
+
+  private static final String CLASS_NAME = "com/linkedin/util/lambda/TestLambdaNameIndexer";
+  private static final String IMPL_DESC = "()Ljava/lang/String;";
+
+  @Test
+  public void testNamesSurviveRestart() throws Exception {
+    Path dir = Files.createTempDirectory("lambda-names");
+    byte[] byteCode = byteCode();
+    ClassLoader loader = loader();
+
+    PersistentNameCache first = new PersistentNameCache(dir, 1024 * 1024);
+    first.ownerLoaded(loader, CLASS_NAME, byteCode);
+    assertFalse(first.get(loader, CLASS_NAME, CLASS_NAME, "value", IMPL_DESC).isPresent());
+    first.put(loader, CLASS_NAME, CLASS_NAME, "value", IMPL_DESC, "TestLambdaNameIndexer::value");
+    first.putSite(loader, CLASS_NAME, "lambdas()V", 1, "s -> convert(_)");
+    first.start();
+    awaitJournal(dir, 2);
+
+    //only the snapshot is read when the cache is opened, journals are read by the background thread
+    PersistentNameCache second = new PersistentNameCache(dir, 1024 * 1024);
+    second.ownerLoaded(loader, CLASS_NAME, byteCode);
+    assertFalse(second.get(loader, CLASS_NAME, CLASS_NAME, "value", IMPL_DESC).isPresent());
+    second.loadJournals();
+    assertEquals(second.get(loader, CLASS_NAME, CLASS_NAME, "value", IMPL_DESC),
+        Optional.of("TestLambdaNameIndexer::value"));
+    assertEquals(second.getSite(loader, CLASS_NAME, "lambdas()V", 1), Optional.of("s -> convert(_)"));
+    assertEquals(second.getHits(), 2);
+
+    //names of a changed class are not reused
+    byte[] changed = Arrays.copyOf(byteCode, byteCode.length);
+    changed[changed.length - 1]++;
+    ClassLoader changedLoader = loader();
+    second.ownerLoaded(changedLoader, CLASS_NAME, changed);
+    assertFalse(second.get(changedLoader, CLASS_NAME, CLASS_NAME, "value", IMPL_DESC).isPresent());
+    //names of classes that were not hashed when they were loaded are not cached
+    assertFalse(second.getSite(loader(), CLASS_NAME, "lambdas()V", 1).isPresent());
+  }
+
+  @Test
+  public void testNamesAreNotAcceptedAfterWriteFailure() throws Exception {
+    Path dir = Files.createTempDirectory("lambda-names");
+    PersistentNameCache cache = new PersistentNameCache(dir, 1024 * 1024);
+    //journal can't be created in a directory that is gone
+    Files.delete(dir);
+    cache.start();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!cache.isClosed() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(cache.isClosed());
+    cache.put("k", "n");
+    assertFalse(cache.get("k").isPresent());
+  }
+
+  @Test
+  public void testRotatedJournalIsCompacted() throws Exception {
+    Path dir = Files.createTempDirectory("lambda-names");
+    PersistentNameCache cache = new PersistentNameCache(dir, 30);
+    cache.start();
+    for (int i = 0; i < 10; i++) {
+      cache.put("k" + i, "n" + i);
+    }
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!Files.exists(dir.resolve(PersistentNameCache.SNAPSHOT)) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    MappedNameIndex snapshot = MappedNameIndex.open(dir.resolve(PersistentNameCache.SNAPSHOT));
+    //journal is rotated once it reaches maximum size, names of the rotated journal are found in the snapshot
+    assertTrue(snapshot.size() > 0);
+    //snapshot is mapped by the cache right after it is written
+    while (!cache.get(snapshot.getKey(0)).isPresent() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(cache.get(snapshot.getKey(0)), Optional.of(snapshot.getName(0)));
+  }
+
+  @Test
+  public void testCompactionKeepsMostRecentNames() throws Exception {
+    Path dir = Files.createTempDirectory("lambda-names");
+    Path journal = dir.resolve("lambda-names-1-dead.journal");
+    //last line is still being written
+    Files.write(journal, "k1\tn1\nk2\tn2\nk3\tn3\nk4\tn".getBytes(StandardCharsets.UTF_8));
+    //each entry takes 20 bytes besides its key and name
+    PersistentNameCache cache = new PersistentNameCache(dir, 50);
+    cache.compact();
+
+    assertFalse(Files.exists(journal));
+    MappedNameIndex snapshot = MappedNameIndex.open(dir.resolve(PersistentNameCache.SNAPSHOT));
+    assertEquals(snapshot.size(), 2);
+    assertEquals(snapshot.find("k1"), -1);
+    assertEquals(snapshot.getName(snapshot.find("k2")), "n2");
+    assertEquals(snapshot.getName(snapshot.find("k3")), "n3");
+    assertEquals(snapshot.find("k4"), -1);
+  }
+
+  private static void awaitJournal(Path dir, int lines) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (System.currentTimeMillis() < deadline) {
+      try (Stream<Path> files = Files.list(dir)) {
+        if (files.anyMatch(file -> file.toString().endsWith(".journal") && lines(file) == lines)) {
+          return;
+        }
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("Journal was not written");
+  }
+
+  private static long lines(Path file) {
+    try {
+      return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).chars().filter(c -> c == '\n').count();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static ClassLoader loader() {
+    return new URLClassLoader(new URL[0], null);
+  }
+
+  private static byte[] byteCode() throws Exception {
+    try (InputStream is = TestPersistentNameCache.class.getResourceAsStream("/" + CLASS_NAME + ".class")) {
+      byte[] buffer = new byte[64 * 1024];
+      int length = 0;
+      int read;
+      while ((read = is.read(buffer, length, buffer.length - length)) > 0) {
+        length += read;
+      }
+      return Arrays.copyOf(buffer, length);
+    }
+  }
+}